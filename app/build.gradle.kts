@@ -14,17 +14,23 @@ android {
         versionName = "1.0"
 
         testInstrumentationRunner = "androidx.test.runner.AndroidJUnitRunner"
+
+        // Payload codec ID from PayloadCodecs; 0 picks the default for the image format
+        buildConfigField("int", "PAYLOAD_CODEC", (project.findProperty("smsto.payloadCodec") ?: "0").toString())
     }
 
     buildTypes {
         release {
-            isMinifyEnabled = false
+            isMinifyEnabled = true
             proguardFiles(
                 getDefaultProguardFile("proguard-android-optimize.txt"),
                 "proguard-rules.pro"
             )
         }
     }
+    buildFeatures {
+        buildConfig = true
+    }
     compileOptions {
         sourceCompatibility = JavaVersion.VERSION_11
         targetCompatibility = JavaVersion.VERSION_11
@@ -33,6 +39,7 @@ android {
 
 dependencies {
 
+    implementation(project(":codec"))
     implementation(libs.appcompat)
     implementation(libs.material)
     implementation(libs.activity)
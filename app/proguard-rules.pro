@@ -18,4 +18,20 @@
 
 # If you keep the line number information, uncomment this to
 # hide the original source file name.
-#-renamesourcefileattribute SourceFile
\ No newline at end of file
+#-renamesourcefileattribute SourceFile
+
+# Release builds drop debug and verbose logging entirely: guarded codec logging
+# folds to "if (false)", and the unguarded calls go with their arguments.
+-assumevalues class com.example.smsto.CodecLog {
+    public static boolean isLoggable(int) return false;
+    public static long startTimer() return 0;
+}
+-assumenosideeffects class com.example.smsto.CodecLog {
+    public static void v(java.lang.String, java.lang.String);
+    public static void d(java.lang.String, java.lang.String);
+    public static void timing(java.lang.String, long, java.lang.String, long, long);
+}
+-assumenosideeffects class android.util.Log {
+    public static int v(...);
+    public static int d(...);
+}
@@ -0,0 +1,39 @@
+package com.example.smsto;
+
+import android.graphics.Bitmap;
+import android.graphics.ImageDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Android 12+ decodes AVIF through ImageDecoder, but the platform has no AVIF
+// encoder, so payloads in this format can be received but not produced here.
+public class AvifImageCodec implements ImageCodec {
+
+    @Override
+    public int id() {
+        return PayloadFormat.IMAGE_CODEC_AVIF;
+    }
+
+    @Override
+    public String name() {
+        return "AVIF";
+    }
+
+    @Override
+    public String mimeType() {
+        return "image/avif";
+    }
+
+    @Override
+    public String extension() {
+        return "avif";
+    }
+
+    @Override
+    public Bitmap decode(byte[] data) throws IOException {
+        ImageDecoder.Source source = ImageDecoder.createSource(ByteBuffer.wrap(data));
+        // Software bitmaps so the result can be re-encoded when saving
+        return ImageDecoder.decodeBitmap(source, (decoder, info, src) -> decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.smsto;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Formats Bitmap.compress can write and BitmapFactory can read
+public class BitmapImageCodec implements ImageEncoder {
+
+    private final int id;
+    private final String name;
+    private final Bitmap.CompressFormat format;
+    private final int defaultQuality;
+    private final String mimeType;
+    private final String extension;
+
+    BitmapImageCodec(int id, String name, Bitmap.CompressFormat format, int defaultQuality, String mimeType, String extension) {
+        this.id = id;
+        this.name = name;
+        this.format = format;
+        this.defaultQuality = defaultQuality;
+        this.mimeType = mimeType;
+        this.extension = extension;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public int defaultQuality() {
+        return defaultQuality;
+    }
+
+    @Override
+    public String mimeType() {
+        return mimeType;
+    }
+
+    @Override
+    public String extension() {
+        return extension;
+    }
+
+    @Override
+    public void compress(Bitmap bitmap, int quality, OutputStream out) {
+        if (!bitmap.compress(format, quality, out)) {
+            throw new IllegalStateException("Failed to compress image to " + name);
+        }
+    }
+
+    @Override
+    public Bitmap decode(byte[] data) throws IOException {
+        Bitmap bitmap = BitmapFactory.decodeByteArray(data, 0, data.length);
+        if (bitmap == null) {
+            throw new IOException("Failed to decode " + name + " image");
+        }
+        return bitmap;
+    }
+}
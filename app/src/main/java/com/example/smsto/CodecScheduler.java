@@ -0,0 +1,167 @@
+package com.example.smsto;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Runs image pipelines on a small shared pool instead of a thread per click.
+// Each screen owns a Lane: at most one of its tasks runs at a time, and a new
+// submission cancels the running task and replaces any waiting one, so rapid
+// taps collapse into the latest request. Cancellation is cooperative; tasks
+// call checkCancelled() between stages and drop their results once cancelled.
+public final class CodecScheduler {
+
+    private static final String TAG = "CodecScheduler";
+    private static final int THREADS = Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1));
+    // Lanes keep at most one task each in the queue, so this is only a backstop
+    private static final int QUEUE_CAPACITY = 16;
+
+    private static final ThreadPoolExecutor EXECUTOR = new ThreadPoolExecutor(
+            THREADS, THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(QUEUE_CAPACITY), new CodecThreadFactory());
+
+    static {
+        EXECUTOR.allowCoreThreadTimeOut(true);
+    }
+
+    public interface Task {
+        void run(Cancellation cancellation) throws Exception;
+    }
+
+    public static final class Cancellation {
+        private volatile boolean cancelled;
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        public void checkCancelled() {
+            if (cancelled) {
+                throw new CancellationException();
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+        }
+    }
+
+    private CodecScheduler() {
+    }
+
+    public static Lane newLane(String name) {
+        return new Lane(name);
+    }
+
+    public static final class Lane {
+        private final String name;
+        private Job running;
+        private Job pending;
+        private boolean closed;
+
+        private Lane(String name) {
+            this.name = name;
+        }
+
+        // Cancels whatever this lane is doing; task starts once the running task has stopped
+        public synchronized void submit(Task task) {
+            if (closed) {
+                Log.w(TAG, name + ": ignoring task submitted after close");
+                return;
+            }
+            if (pending != null) {
+                pending.cancellation.cancel();
+                Log.d(TAG, name + ": replacing a waiting task");
+            }
+            pending = new Job(this, task);
+            if (running != null) {
+                running.cancellation.cancel();
+            } else {
+                startPending();
+            }
+        }
+
+        public synchronized void cancel() {
+            if (pending != null) {
+                pending.cancellation.cancel();
+                pending = null;
+            }
+            if (running != null) {
+                running.cancellation.cancel();
+            }
+        }
+
+        // For the owning screen's onDestroy: cancels and refuses further work
+        public synchronized void close() {
+            closed = true;
+            cancel();
+        }
+
+        private synchronized void finished(Job job) {
+            if (running == job) {
+                running = null;
+                if (pending != null) {
+                    startPending();
+                }
+            }
+        }
+
+        private void startPending() {
+            Job job = pending;
+            pending = null;
+            running = job;
+            try {
+                EXECUTOR.execute(job);
+            } catch (RejectedExecutionException e) {
+                Log.e(TAG, name + ": codec pool is saturated, dropping task", e);
+                running = null;
+            }
+        }
+    }
+
+    private static final class Job implements Runnable {
+        private final Lane lane;
+        private final Task task;
+        private final Cancellation cancellation = new Cancellation();
+
+        Job(Lane lane, Task task) {
+            this.lane = lane;
+            this.task = task;
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (!cancellation.isCancelled()) {
+                    task.run(cancellation);
+                }
+            } catch (CancellationException e) {
+                Log.d(TAG, lane.name + ": task cancelled");
+            } catch (Exception e) {
+                Log.e(TAG, lane.name + ": task failed: " + e.getMessage(), e);
+            } finally {
+                lane.finished(this);
+            }
+        }
+    }
+
+    private static final class CodecThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(() -> {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                runnable.run();
+            }, "codec-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -5,13 +5,12 @@ import android.content.ClipboardManager;
 import android.content.ClipDescription;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
-import android.util.Base64;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
+import android.widget.CheckBox;
 import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
@@ -20,22 +19,31 @@ import android.widget.Toast;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.GZIPInputStream;
+import java.util.List;
+import java.util.concurrent.CancellationException;
 
 public class DecodeActivity extends AppCompatActivity {
 
     private static final int CREATE_FILE_REQUEST_CODE = 100;
     private static final String TAG = "DecodeActivity";
+    private static final SmsImageCodec CODEC = SmsImageCodec.builder().build();
 
     private EditText smsInput;
     private ImageView imageView;
     private Button decodeBtn, pasteBtn, switchBtn, saveBtn;
     private ProgressBar progressBar;
+    private CheckBox saveAsPng;
     private Bitmap decodedBitmap;
+    private byte[] decodedImage;
+    private ImageCodec decodedImageCodec;
+    // Format picked when the save dialog was opened
+    private boolean savingAsPng;
+    private final SegmentReassembler reassembler = new SegmentReassembler();
+    private final CodecScheduler.Lane pipeline = CodecScheduler.newLane(TAG);
+    // Separate so a new decode never cancels a save halfway through the file
+    private final CodecScheduler.Lane saves = CodecScheduler.newLane(TAG + ".save");
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -49,6 +57,7 @@ public class DecodeActivity extends AppCompatActivity {
             pasteBtn = findViewById(R.id.paste_button);
             switchBtn = findViewById(R.id.btn_switch_to_encoder);
             saveBtn = findViewById(R.id.save_button);
+            saveAsPng = findViewById(R.id.save_as_png);
             progressBar = findViewById(R.id.progress_bar);
         } catch (Exception e) {
             Log.e(TAG, "Failed to initialize views: " + e.getMessage(), e);
@@ -67,72 +76,176 @@ public class DecodeActivity extends AppCompatActivity {
         saveBtn.setEnabled(false);
     }
 
+    @Override
+    protected void onDestroy() {
+        pipeline.close();
+        saves.close();
+        super.onDestroy();
+    }
+
     private void decodeImage() {
-        String smsText = smsInput.getText().toString().trim().replaceAll("\\n", "");
+        String smsText = smsInput.getText().toString().trim().replaceAll("[\\r\\n]", "");
         if (smsText.isEmpty()) {
             Toast.makeText(this, "No text to decode!", Toast.LENGTH_SHORT).show();
             return;
         }
 
+        String[] segmentBodies = null;
+        char segmentKind = SmsSegment.KIND_TEXT;
+        if (SmsSegment.isFramed(smsText)) {
+            int accepted = reassembler.accept(smsText);
+            Log.d(TAG, "Accepted " + accepted + " segments, have " + reassembler.getReceived() + " of " + reassembler.getTotal());
+            if (!reassembler.isComplete()) {
+                smsInput.setText("");
+                Toast.makeText(this, "Received " + reassembler.getReceived() + " of " + reassembler.getTotal()
+                        + " segments (need " + reassembler.getRequired() + "). Missing: " + formatMissing(reassembler.getMissing()),
+                        Toast.LENGTH_LONG).show();
+                showPreview(reassembler.getKind(), reassembler.getBodies());
+                return;
+            }
+            segmentKind = reassembler.getKind();
+            segmentBodies = reassembler.getBodies();
+        }
+        String encodedPayload = smsText;
+        String[] bodies = segmentBodies;
+        char kind = segmentKind;
+
         progressBar.setVisibility(View.VISIBLE);
         saveBtn.setEnabled(false);
 
-        new Thread(() -> {
+        pipeline.submit(cancellation -> {
             try {
-                Log.d(TAG, "Starting decompression, input length: " + smsText.length() + ", sample: " + smsText.substring(0, Math.min(50, smsText.length())));
-                String base64Image = decompressString(smsText);
-                if (base64Image == null || base64Image.isEmpty()) {
-                    Log.e(TAG, "Decompressed text is null or empty");
-                    runOnUiThread(() -> Toast.makeText(this, "Invalid text format", Toast.LENGTH_SHORT).show());
-                    return;
-                }
-                Log.d(TAG, "Decompressed Base64 length: " + base64Image.length() + ", sample: " + base64Image.substring(0, Math.min(50, base64Image.length())));
-
-                Log.d(TAG, "Decoding Base64 to image bytes");
-                byte[] imageBytes;
-                try {
-                    imageBytes = Base64.decode(base64Image, Base64.NO_WRAP);
-                } catch (IllegalArgumentException e) {
-                    Log.e(TAG, "Base64 decoding failed: " + e.getMessage() + ", input: " + base64Image.substring(0, Math.min(100, base64Image.length())));
-                    throw new IllegalArgumentException("Bad Base-64");
-                }
-                if (imageBytes.length == 0) {
-                    throw new IllegalArgumentException("Base64 decoding produced no bytes");
-                }
-
-                Log.d(TAG, "Creating bitmap");
-                decodedBitmap = BitmapFactory.decodeByteArray(imageBytes, 0, imageBytes.length);
-                if (decodedBitmap == null) {
-                    throw new IllegalStateException("Failed to create bitmap from decoded bytes");
+                DecodeCache cache = ((SmsToApplication) getApplication()).getDecodeCache();
+                PipelineMetrics.Recorder metrics = PipelineMetrics.start("decode");
+                String key = bodies != null ? DecodeCache.key(kind, bodies) : DecodeCache.key(encodedPayload);
+                DecodeCache.Entry entry = cache.get(key);
+                metrics.record(PipelineMetrics.Stage.CACHE_LOOKUP, entry != null ? entry.getImage().length : 0);
+                if (entry != null) {
+                    Log.d(TAG, "Decode cache hit for " + key);
+                } else {
+                    entry = decodePayload(encodedPayload, kind, bodies, cache, key, metrics, cancellation);
                 }
+                metrics.finish();
+                ImageCodec imageCodec = ImageCodecs.forId(entry.getImageCodec());
+                byte[] imageBytes = entry.getImage();
+                Bitmap bitmap = entry.getBitmap();
 
                 runOnUiThread(() -> {
-                    imageView.setImageBitmap(decodedBitmap);
+                    // A newer request owns the screen now
+                    if (cancellation.isCancelled()) {
+                        return;
+                    }
+                    decodedBitmap = bitmap;
+                    decodedImage = imageBytes;
+                    decodedImageCodec = imageCodec;
+                    imageView.setImageBitmap(bitmap);
                     saveBtn.setEnabled(true);
                     Toast.makeText(this, "Decoded successfully!", Toast.LENGTH_SHORT).show();
                 });
+            } catch (CancellationException e) {
+                throw e;
             } catch (IllegalArgumentException e) {
                 Log.e(TAG, "Decoding error: " + e.getMessage(), e);
-                runOnUiThread(() -> Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show());
+                runOnUiThread(() -> {
+                    if (!cancellation.isCancelled()) {
+                        Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                });
             } catch (Exception e) {
                 Log.e(TAG, "Decoding failed: " + e.getMessage(), e);
-                runOnUiThread(() -> Toast.makeText(this, "Decoding failed: " + e.getMessage(), Toast.LENGTH_SHORT).show());
+                runOnUiThread(() -> {
+                    if (!cancellation.isCancelled()) {
+                        Toast.makeText(this, "Decoding failed: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                    }
+                });
             } finally {
-                runOnUiThread(() -> progressBar.setVisibility(View.GONE));
+                runOnUiThread(() -> {
+                    if (!cancellation.isCancelled()) {
+                        progressBar.setVisibility(View.GONE);
+                    }
+                });
+            }
+        });
+    }
+
+    private DecodeCache.Entry decodePayload(String encodedPayload, char kind, String[] bodies, DecodeCache cache,
+                                            String key, PipelineMetrics.Recorder metrics,
+                                            CodecScheduler.Cancellation cancellation) throws IOException {
+        Log.d(TAG, "Starting decompression, input length: " + encodedPayload.length() + ", sample: " + encodedPayload.substring(0, Math.min(50, encodedPayload.length())));
+        PayloadFormat.Decoded decoded = bodies != null
+                ? CODEC.decodeSegments(kind, bodies, metrics)
+                : CODEC.decode(encodedPayload, metrics);
+        ImageCodec imageCodec = ImageCodecs.forId(decoded.getImageCodec());
+        byte[] imageBytes = decoded.getImage();
+        if (imageBytes.length == 0) {
+            throw new IllegalArgumentException("Payload decoding produced no bytes");
+        }
+        cancellation.checkCancelled();
+
+        Log.d(TAG, "Creating bitmap from " + imageCodec.name());
+        Bitmap bitmap;
+        try {
+            bitmap = imageCodec.decode(imageBytes);
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to create bitmap from decoded bytes", e);
+        }
+        metrics.record(PipelineMetrics.Stage.IMAGE_DECODE, bitmap.getAllocationByteCount());
+        DecodeCache.Entry entry = cache.put(key, decoded.getImageCodec(), imageBytes, bitmap);
+        metrics.record(PipelineMetrics.Stage.CACHE_STORE, imageBytes.length);
+        return entry;
+    }
+
+    // Coarse image from the segments so far; each paste replaces the previous preview
+    private void showPreview(char kind, String[] bodies) {
+        pipeline.submit(cancellation -> {
+            PayloadFormat.Decoded decoded = CODEC.decodePreview(kind, bodies);
+            if (decoded == null) {
+                return;
+            }
+            cancellation.checkCancelled();
+            Bitmap preview;
+            try {
+                preview = ImageCodecs.forId(decoded.getImageCodec()).decodePartial(decoded.getImage());
+            } catch (IOException | IllegalArgumentException e) {
+                // Not enough of the image yet, typically still inside its headers
+                Log.d(TAG, "No preview from " + decoded.getImage().length + " bytes: " + e.getMessage());
+                return;
             }
-        }).start();
+            Log.d(TAG, "Preview from " + decoded.getImage().length + " image bytes");
+            runOnUiThread(() -> {
+                if (!cancellation.isCancelled()) {
+                    imageView.setImageBitmap(preview);
+                    // Whatever was decoded before belongs to another message
+                    saveBtn.setEnabled(false);
+                }
+            });
+        });
+    }
+
+    private String formatMissing(List<Integer> missing) {
+        StringBuilder sb = new StringBuilder();
+        for (int index : missing) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(index + 1);
+        }
+        return sb.toString();
     }
 
     private void saveImage() {
-        if (decodedBitmap == null) {
+        if (decodedImage == null) {
             Toast.makeText(this, "No image to save!", Toast.LENGTH_SHORT).show();
             return;
         }
 
-        String filename = "decoded_image_" + System.currentTimeMillis() + ".png";
+        // By default the image as it arrived, so saving neither re-encodes nor inflates it
+        savingAsPng = saveAsPng.isChecked();
+        String extension = savingAsPng ? "png" : decodedImageCodec.extension();
+        String filename = "decoded_image_" + System.currentTimeMillis() + "." + extension;
         Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
         intent.addCategory(Intent.CATEGORY_OPENABLE);
-        intent.setType("image/png");
+        intent.setType(savingAsPng ? "image/png" : decodedImageCodec.mimeType());
         intent.putExtra(Intent.EXTRA_TITLE, filename);
         startActivityForResult(intent, CREATE_FILE_REQUEST_CODE);
     }
@@ -141,15 +254,36 @@ public class DecodeActivity extends AppCompatActivity {
     protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         if (requestCode == CREATE_FILE_REQUEST_CODE && resultCode == RESULT_OK && data != null && data.getData() != null) {
-            Uri uri = data.getData();
+            saveTo(data.getData(), decodedImage, savingAsPng ? decodedBitmap : null);
+        }
+    }
+
+    // Writes off the UI thread: image bytes as they are, or a PNG of pngSource when given
+    private void saveTo(Uri uri, byte[] image, @Nullable Bitmap pngSource) {
+        saves.submit(cancellation -> {
+            String error = null;
             try (OutputStream out = getContentResolver().openOutputStream(uri)) {
-                decodedBitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
-                Toast.makeText(this, "Image saved successfully!", Toast.LENGTH_SHORT).show();
+                if (out == null) {
+                    throw new IOException("Cannot open " + uri);
+                }
+                if (pngSource != null) {
+                    if (!pngSource.compress(Bitmap.CompressFormat.PNG, 100, out)) {
+                        throw new IOException("PNG encoding failed");
+                    }
+                } else {
+                    out.write(image);
+                }
             } catch (IOException e) {
                 Log.e(TAG, "Failed to save image: " + e.getMessage(), e);
-                Toast.makeText(this, "Failed to save image: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                error = e.getMessage();
             }
-        }
+            String message = error == null ? "Image saved successfully!" : "Failed to save image: " + error;
+            runOnUiThread(() -> {
+                if (!cancellation.isCancelled()) {
+                    Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
     }
 
     private void pasteFromClipboard() {
@@ -172,28 +306,4 @@ public class DecodeActivity extends AppCompatActivity {
             Toast.makeText(this, "Clipboard error: " + e.getMessage(), Toast.LENGTH_SHORT).show();
         }
     }
-
-    private String decompressString(String compressedStr) {
-        if (compressedStr == null || compressedStr.isEmpty()) {
-            Log.e(TAG, "Compressed string is null or empty");
-            return null;
-        }
-        try {
-            byte[] compressedBytes = Base64.decode(compressedStr, Base64.NO_WRAP);
-            GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(compressedBytes));
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            byte[] buffer = new byte[1024];
-            int n;
-            while ((n = gis.read(buffer)) >= 0) {
-                baos.write(buffer, 0, n);
-            }
-            gis.close();
-            String result = new String(baos.toByteArray(), "UTF-8");
-            Log.d(TAG, "Decompressed string length: " + result.length());
-            return result;
-        } catch (IOException e) {
-            Log.e(TAG, "Decompression failed: " + e.getMessage(), e);
-            return null;
-        }
-    }
 }
\ No newline at end of file
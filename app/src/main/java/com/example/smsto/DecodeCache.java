@@ -0,0 +1,179 @@
+package com.example.smsto;
+
+import android.graphics.Bitmap;
+import android.util.Log;
+import android.util.LruCache;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+// Decoded images keyed by a hash of the payload text, so pasting a forwarded
+// message again skips the whole decode. Bitmaps stay in a byte-bounded LRU;
+// the compressed image bytes also go to cacheDir/decoded, which survives
+// restarts and is trimmed oldest-first. Disk access belongs on a worker thread.
+public final class DecodeCache {
+
+    private static final String TAG = "DecodeCache";
+    private static final String DIRECTORY = "decoded";
+    private static final String SUFFIX = ".img";
+    private static final int KEY_BYTES = 16;
+
+    public static final class Entry {
+        private final int imageCodec;
+        private final byte[] image;
+        private final Bitmap bitmap;
+
+        Entry(int imageCodec, byte[] image, Bitmap bitmap) {
+            this.imageCodec = imageCodec;
+            this.image = image;
+            this.bitmap = bitmap;
+        }
+
+        public int getImageCodec() {
+            return imageCodec;
+        }
+
+        // The compressed image exactly as it came out of the payload
+        public byte[] getImage() {
+            return image;
+        }
+
+        public Bitmap getBitmap() {
+            return bitmap;
+        }
+    }
+
+    private final LruCache<String, Entry> memory;
+    private final File directory;
+    private final long maxDiskBytes;
+
+    public DecodeCache(File cacheDir, int maxMemoryBytes, long maxDiskBytes) {
+        this.memory = new LruCache<String, Entry>(maxMemoryBytes) {
+            @Override
+            protected int sizeOf(String key, Entry entry) {
+                return entry.bitmap.getAllocationByteCount() + entry.image.length;
+            }
+        };
+        this.directory = new File(cacheDir, DIRECTORY);
+        this.maxDiskBytes = maxDiskBytes;
+    }
+
+    // Same text, same key: callers strip line breaks and whitespace first.
+    // Segments key on their reassembled bodies, so arrival order doesn't matter,
+    // and text segments on the payload they join into, as if pasted whole.
+    public static String key(char kind, String[] bodies) {
+        if (kind == SmsSegment.KIND_TEXT) {
+            return key(String.join("", bodies));
+        }
+        MessageDigest digest = sha256();
+        digest.update((byte) kind);
+        for (int i = 0; i < bodies.length; i++) {
+            if (bodies[i] != null) {
+                digest.update((byte) i);
+                digest.update(bodies[i].getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        return hex(digest.digest());
+    }
+
+    public static String key(String payload) {
+        return hex(sha256().digest(payload.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    public Entry get(String key) {
+        Entry entry = memory.get(key);
+        if (entry != null) {
+            return entry;
+        }
+        File file = new File(directory, key + SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            byte[] stored = Files.readAllBytes(file.toPath());
+            if (stored.length < 2) {
+                throw new IOException("Truncated cache file");
+            }
+            int imageCodec = stored[0] & 0xFF;
+            byte[] image = Arrays.copyOfRange(stored, 1, stored.length);
+            entry = new Entry(imageCodec, image, ImageCodecs.forId(imageCodec).decode(image));
+            memory.put(key, entry);
+            file.setLastModified(System.currentTimeMillis());
+            return entry;
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Dropping unreadable cache entry " + key + ": " + e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    public Entry put(String key, int imageCodec, byte[] image, Bitmap bitmap) {
+        Entry entry = new Entry(imageCodec, image, bitmap);
+        memory.put(key, entry);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create " + directory);
+            return entry;
+        }
+        // Written aside and renamed so a crash never leaves a half file under the key
+        File temp = new File(directory, key + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            out.write(imageCodec);
+            out.write(image);
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to write cache entry: " + e.getMessage());
+            temp.delete();
+            return entry;
+        }
+        if (!temp.renameTo(new File(directory, key + SUFFIX))) {
+            temp.delete();
+        }
+        trimDisk();
+        return entry;
+    }
+
+    private void trimDisk() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File file : files) {
+            total += file.length();
+        }
+        if (total <= maxDiskBytes) {
+            return;
+        }
+        Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : files) {
+            if (total <= maxDiskBytes) {
+                break;
+            }
+            total -= file.length();
+            file.delete();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    // The first KEY_BYTES of the digest are plenty to tell payloads apart
+    private static String hex(byte[] digest) {
+        StringBuilder sb = new StringBuilder(KEY_BYTES * 2);
+        for (int i = 0; i < KEY_BYTES; i++) {
+            sb.append(Character.forDigit((digest[i] >>> 4) & 0x0F, 16)).append(Character.forDigit(digest[i] & 0x0F, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.smsto;
+
+import android.graphics.Bitmap;
+import android.graphics.ImageDecoder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+// Image format of a payload, identified on the wire by id(). Formats this
+// device can also produce implement ImageEncoder.
+public interface ImageCodec {
+
+    int id();
+
+    String name();
+
+    String mimeType();
+
+    // File name extension, without the dot
+    String extension();
+
+    Bitmap decode(byte[] data) throws IOException;
+
+    // Whatever the start of a truncated image shows, for previews while segments
+    // arrive. Baseline JPEG and WebP fill in top to bottom.
+    default Bitmap decodePartial(byte[] data) throws IOException {
+        ImageDecoder.Source source = ImageDecoder.createSource(ByteBuffer.wrap(data));
+        return ImageDecoder.decodeBitmap(source, (decoder, info, src) -> {
+            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+            // Keep the rows decoded before the data ran out instead of failing
+            decoder.setOnPartialImageListener(e -> true);
+        });
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.smsto;
+
+import android.graphics.Bitmap;
+
+public final class ImageCodecs {
+
+    public static final ImageEncoder JPEG = new BitmapImageCodec(PayloadFormat.IMAGE_CODEC_JPEG, "JPEG", Bitmap.CompressFormat.JPEG, 30, "image/jpeg", "jpg");
+    public static final ImageEncoder WEBP = new BitmapImageCodec(PayloadFormat.IMAGE_CODEC_WEBP, "WebP", Bitmap.CompressFormat.WEBP_LOSSY, 30, "image/webp", "webp");
+    public static final ImageCodec AVIF = new AvifImageCodec();
+
+    // Every format a received payload may use
+    public static final ImageCodec[] ALL = {JPEG, WEBP, AVIF};
+    // The formats the encoder offers, in that order; AVIF can only be received
+    public static final ImageEncoder[] ENCODERS = {JPEG, WEBP};
+
+    private ImageCodecs() {
+    }
+
+    public static ImageCodec forId(int id) {
+        for (ImageCodec codec : ALL) {
+            if (codec.id() == id) {
+                return codec;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported image format: " + id);
+    }
+}
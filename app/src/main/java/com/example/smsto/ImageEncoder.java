@@ -0,0 +1,14 @@
+package com.example.smsto;
+
+import android.graphics.Bitmap;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// An ImageCodec this device can also write, offered by the encoder
+public interface ImageEncoder extends ImageCodec {
+
+    int defaultQuality();
+
+    void compress(Bitmap bitmap, int quality, OutputStream out) throws IOException;
+}
@@ -0,0 +1,30 @@
+package com.example.smsto;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.ImageDecoder;
+import android.net.Uri;
+import android.util.Size;
+
+import java.io.IOException;
+
+// Decodes picked images straight to the size they are shown and encoded at.
+// ImageDecoder reads the header first and subsamples while decoding, so a
+// 50 MP photo never exists in memory at full resolution.
+public final class ImageLoader {
+
+    private ImageLoader() {
+    }
+
+    // Fits the image in maxWidth x maxHeight; smaller images keep their size
+    public static Bitmap load(ContentResolver resolver, Uri uri, int maxWidth, int maxHeight) throws IOException {
+        ImageDecoder.Source source = ImageDecoder.createSource(resolver, uri);
+        return ImageDecoder.decodeBitmap(source, (decoder, info, src) -> {
+            Size size = info.getSize();
+            float ratio = Math.min(1f, Math.min((float) maxWidth / size.getWidth(), (float) maxHeight / size.getHeight()));
+            decoder.setTargetSize(Math.max(1, Math.round(size.getWidth() * ratio)), Math.max(1, Math.round(size.getHeight() * ratio)));
+            // Software bitmaps can be drawn into the budget search canvas and compressed
+            decoder.setAllocator(ImageDecoder.ALLOCATOR_SOFTWARE);
+        });
+    }
+}
@@ -4,41 +4,53 @@ import android.content.ClipData;
 import android.content.ClipboardManager;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
 import android.net.Uri;
 import android.os.Bundle;
 import android.provider.MediaStore;
-import android.util.Base64;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
+import android.widget.ArrayAdapter;
+import android.widget.EditText;
 import android.widget.ImageView;
 import android.widget.ProgressBar;
+import android.widget.Spinner;
 import android.widget.TextView;
 import android.widget.Toast;
 
 import androidx.appcompat.app.AppCompatActivity;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
+import java.io.OutputStream;
 import java.util.List;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ThreadLocalRandom;
 
 public class MainActivity extends AppCompatActivity {
 
     private static final int PICK_IMAGE = 1;
     private static final int MAX_WIDTH = 200;
     private static final int MAX_HEIGHT = 200;
+    private static final TextCodec TEXT_CODEC = TextCodecs.GSM;
+    // Reed-Solomon parity segments; any that many segments may go missing. 0 turns FEC off.
+    private static final int PARITY_SEGMENTS = 2;
+    // BuildConfig.PAYLOAD_CODEC 0 leaves the payload codec to the image format
+    private static final SmsImageCodec CODEC = SmsImageCodec.builder()
+            .textCodec(TEXT_CODEC)
+            .paritySegments(PARITY_SEGMENTS)
+            .payloadCodec(BuildConfig.PAYLOAD_CODEC != 0 ? PayloadCodecs.forId(BuildConfig.PAYLOAD_CODEC) : null)
+            .build();
     private static final String TAG = "MainActivity";
 
     private ImageView imageView;
-    private Button chooseBtn, encodeBtn, copyBtn, switchBtn;
+    private Button chooseBtn, encodeBtn, copyBtn, switchBtn, statsBtn;
     private TextView smsOutput;
+    private EditText segmentBudgetInput;
+    private Spinner imageCodecSpinner;
     private ProgressBar progressBar;
     private Bitmap selectedImage;
     private String encodedResult;
+    // Image loading and encoding share one lane: a new pick or tap replaces the previous one
+    private final CodecScheduler.Lane pipeline = CodecScheduler.newLane(TAG);
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -51,7 +63,10 @@ public class MainActivity extends AppCompatActivity {
             encodeBtn = findViewById(R.id.encode_button);
             copyBtn = findViewById(R.id.copy_button);
             switchBtn = findViewById(R.id.btn_switch_to_decoder);
+            statsBtn = findViewById(R.id.stats_button);
             smsOutput = findViewById(R.id.sms_output);
+            segmentBudgetInput = findViewById(R.id.segment_budget);
+            imageCodecSpinner = findViewById(R.id.image_codec);
             progressBar = findViewById(R.id.progress_bar);
         } catch (Exception e) {
             Log.e(TAG, "Failed to initialize views: " + e.getMessage(), e);
@@ -60,6 +75,14 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
+        String[] codecNames = new String[ImageCodecs.ENCODERS.length];
+        for (int i = 0; i < codecNames.length; i++) {
+            codecNames[i] = ImageCodecs.ENCODERS[i].name();
+        }
+        ArrayAdapter<String> codecAdapter = new ArrayAdapter<>(this, android.R.layout.simple_spinner_item, codecNames);
+        codecAdapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
+        imageCodecSpinner.setAdapter(codecAdapter);
+
         chooseBtn.setOnClickListener(v -> pickImage());
 
         encodeBtn.setOnClickListener(v -> encodeImage());
@@ -79,6 +102,14 @@ public class MainActivity extends AppCompatActivity {
             Intent intent = new Intent(MainActivity.this, DecodeActivity.class);
             startActivity(intent);
         });
+
+        statsBtn.setOnClickListener(v -> startActivity(new Intent(this, StatsActivity.class)));
+    }
+
+    @Override
+    protected void onDestroy() {
+        pipeline.close();
+        super.onDestroy();
     }
 
     private void pickImage() {
@@ -103,157 +134,140 @@ public class MainActivity extends AppCompatActivity {
             return;
         }
 
+        int segmentBudget = readSegmentBudget();
+        ImageEncoder imageCodec = ImageCodecs.ENCODERS[imageCodecSpinner.getSelectedItemPosition()];
+        PayloadCodec payloadCodec = CODEC.payloadCodecFor(imageCodec.id());
+
         progressBar.setVisibility(View.VISIBLE);
         copyBtn.setEnabled(false);
 
-        new Thread(() -> {
-            Bitmap resized = null;
-            try {
-                Log.d(TAG, "Starting image resize");
-                resized = resizeBitmap(selectedImage, MAX_WIDTH, MAX_HEIGHT);
-                if (resized == null) {
-                    throw new IllegalStateException("Failed to resize image");
-                }
-
-                Log.d(TAG, "Compressing to JPEG");
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                resized.compress(Bitmap.CompressFormat.JPEG, 30, baos);
-                byte[] imageBytes = baos.toByteArray();
-                if (imageBytes.length == 0) {
-                    throw new IllegalStateException("Failed to compress image to JPEG");
-                }
+        // Already at encode size, see onActivityResult
+        Bitmap source = selectedImage;
 
-                Log.d(TAG, "Converting to Base64");
-                String base64Image = Base64.encodeToString(imageBytes, Base64.NO_WRAP);
-                if (base64Image.isEmpty()) {
-                    throw new IllegalStateException("Base64 encoding failed");
+        pipeline.submit(cancellation -> {
+            try {
+                Log.d(TAG, "Streaming " + imageCodec.name() + " -> " + payloadCodec.name() + " -> " + TEXT_CODEC.getClass().getSimpleName() + " -> SMS segments");
+                int messageId = ThreadLocalRandom.current().nextInt(SmsSegment.MAX_SEGMENTS);
+                PipelineMetrics.Recorder metrics = PipelineMetrics.start("encode");
+                List<String> smsSegments;
+                if (segmentBudget > 0) {
+                    Log.d(TAG, "Searching size and quality for at most " + segmentBudget + " segments");
+                    SegmentBudgetSearch.Result result = new SegmentBudgetSearch(imageCodec, CODEC)
+                            .search(source, Math.max(MAX_WIDTH, MAX_HEIGHT), segmentBudget, cancellation);
+                    if (result == null) {
+                        throw new IllegalStateException("Image does not fit in " + segmentBudget + " segments");
+                    }
+                    metrics.record(PipelineMetrics.Stage.BUDGET_SEARCH, result.getFrame().length);
+                    Log.d(TAG, "Budget encoding: " + result.getWidth() + "x" + result.getHeight() + ", quality " + result.getQuality());
+                    cancellation.checkCancelled();
+                    smsSegments = CODEC.segmentFrame(result.getFrame(), result.getFrame().length, messageId, metrics);
+                } else {
+                    SmsImageCodec.Encoder encoder = CODEC.newEncoder(imageCodec.id(), messageId, metrics);
+                    try (OutputStream out = encoder) {
+                        imageCodec.compress(source, imageCodec.defaultQuality(), out);
+                    }
+                    cancellation.checkCancelled();
+                    smsSegments = encoder.getSegments();
                 }
-                Log.d(TAG, "Base64 length: " + base64Image.length() + ", sample: " + base64Image.substring(0, Math.min(50, base64Image.length())));
-
-                Log.d(TAG, "Compressing with GZIP");
-                String compressedSms = compressString(base64Image);
-                if (compressedSms == null || compressedSms.isEmpty()) {
-                    throw new IllegalStateException("GZIP compression failed");
+                if (smsSegments.isEmpty()) {
+                    throw new IllegalStateException("Compression failed");
                 }
-                Log.d(TAG, "Compressed SMS length: " + compressedSms.length() + ", sample: " + compressedSms.substring(0, Math.min(50, compressedSms.length())));
-
-                Log.d(TAG, "Splitting for SMS");
-                List<String> smsSegments = splitForSms(compressedSms);
-                encodedResult = compressedSms;
-                Log.d(TAG, "Encoded output segments: " + smsSegments.size());
+                // No separator, so each segment lines up with a part of the concatenated SMS
+                String compressedSms = String.join("", smsSegments);
+                SmsSegmenter.Plan plan = SmsSegmenter.plan(compressedSms);
+                Log.d(TAG, payloadCodec.name() + " SMS length: " + compressedSms.length() + ", " + plan.getEncoding() + " units: " + plan.getUnits()
+                        + ", segments: " + plan.getSegmentCount());
+                metrics.finish();
 
                 runOnUiThread(() -> {
-                    smsOutput.setText(String.join("\n", smsSegments));
+                    // A newer request owns the screen now
+                    if (cancellation.isCancelled()) {
+                        return;
+                    }
+                    encodedResult = compressedSms;
+                    smsOutput.setText(compressedSms);
                     copyBtn.setEnabled(true);
                     ClipboardManager clipboard = (ClipboardManager) getSystemService(CLIPBOARD_SERVICE);
                     ClipData clip = ClipData.newPlainText("Encoded SMS", compressedSms);
                     clipboard.setPrimaryClip(clip);
-                    Toast.makeText(this, "Encoded & Copied to Clipboard! Segments: " + smsSegments.size(), Toast.LENGTH_LONG).show();
+                    Toast.makeText(this, "Encoded & Copied to Clipboard! Segments: " + plan.getSegmentCount() + " (" + plan.getEncoding() + ")", Toast.LENGTH_LONG).show();
                 });
+            } catch (CancellationException e) {
+                throw e;
             } catch (Exception e) {
                 Log.e(TAG, "Encoding failed at step: " + e.getMessage(), e);
-                runOnUiThread(() -> Toast.makeText(this, "Encoding failed: " + e.getMessage(), Toast.LENGTH_LONG).show());
+                runOnUiThread(() -> {
+                    if (!cancellation.isCancelled()) {
+                        Toast.makeText(this, "Encoding failed: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    }
+                });
             } finally {
-                if (resized != null && resized != selectedImage) {
-                    resized.recycle();
-                }
                 runOnUiThread(() -> {
-                    progressBar.setVisibility(View.GONE);
-                    copyBtn.setEnabled(encodedResult != null && !encodedResult.isEmpty());
+                    if (!cancellation.isCancelled()) {
+                        progressBar.setVisibility(View.GONE);
+                        copyBtn.setEnabled(encodedResult != null && !encodedResult.isEmpty());
+                    }
                 });
             }
-        }).start();
-    }
-
-    private Bitmap resizeBitmap(Bitmap original, int maxWidth, int maxHeight) {
-        try {
-            int width = original.getWidth();
-            int height = original.getHeight();
-            if (width <= 0 || height <= 0) {
-                throw new IllegalStateException("Invalid bitmap dimensions");
-            }
-            float ratio = Math.min((float) maxWidth / width, (float) maxHeight / height);
-            int newWidth = Math.round(width * ratio);
-            int newHeight = Math.round(height * ratio);
-            return Bitmap.createScaledBitmap(original, newWidth, newHeight, true);
-        } catch (Exception e) {
-            Log.e(TAG, "Failed to resize bitmap: " + e.getMessage(), e);
-            return null;
-        }
+        });
     }
 
-    private String compressString(String str) {
-        if (str == null || str.isEmpty()) {
-            Log.e(TAG, "Input string for compression is null or empty");
-            return null;
+    // 0 when no budget was entered
+    private int readSegmentBudget() {
+        String text = segmentBudgetInput.getText().toString().trim();
+        if (text.isEmpty()) {
+            return 0;
         }
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            GZIPOutputStream gzip = new GZIPOutputStream(baos);
-            gzip.write(str.getBytes("UTF-8"));
-            gzip.close();
-            byte[] compressed = baos.toByteArray();
-            String result = Base64.encodeToString(compressed, Base64.NO_WRAP);
-            Log.d(TAG, "Compressed string length: " + result.length());
-            return result;
-        } catch (IOException e) {
-            Log.e(TAG, "GZIP compression failed: " + e.getMessage(), e);
-            return null;
-        }
-    }
-
-    private List<String> splitForSms(String text) {
-        List<String> segments = new ArrayList<>();
-        int maxLength = 153; // GSM-7 segment length
-        if (text == null) {
-            Log.e(TAG, "Text to split for SMS is null");
-            return segments;
-        }
-        for (int i = 0; i < text.length(); i += maxLength) {
-            segments.add(text.substring(i, Math.min(i + maxLength, text.length())));
+            return Math.max(0, Integer.parseInt(text));
+        } catch (NumberFormatException e) {
+            Log.w(TAG, "Ignoring invalid segment budget: " + text);
+            return 0;
         }
-        return segments;
-    }
-
-    private String bytesToHex(byte[] bytes) {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            sb.append(String.format("%02X ", b));
-        }
-        return sb.toString();
     }
 
     @Override
     protected void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
         if (requestCode == PICK_IMAGE && resultCode == RESULT_OK && data != null) {
-            try {
-                Uri imageUri = data.getData();
-                if (imageUri == null) {
-                    throw new IllegalStateException("Image URI is null");
-                }
-                InputStream imageStream = getContentResolver().openInputStream(imageUri);
-                if (imageStream == null) {
-                    throw new IllegalStateException("Failed to open image stream");
-                }
-                if (selectedImage != null && !selectedImage.isRecycled()) {
-                    selectedImage.recycle();
-                }
-                selectedImage = BitmapFactory.decodeStream(imageStream);
-                imageStream.close();
-                if (selectedImage == null) {
-                    throw new IllegalStateException("Failed to decode bitmap");
-                }
-                Bitmap resized = resizeBitmap(selectedImage, MAX_WIDTH, MAX_HEIGHT);
-                if (resized == null) {
-                    throw new IllegalStateException("Failed to resize image for display");
-                }
-                imageView.setImageBitmap(resized);
-                Toast.makeText(this, "Image selected", Toast.LENGTH_SHORT).show();
-            } catch (Exception e) {
-                Log.e(TAG, "Error loading image: " + e.getMessage(), e);
-                Toast.makeText(this, "Error loading image: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+            Uri imageUri = data.getData();
+            if (imageUri == null) {
+                Log.e(TAG, "Image URI is null");
+                Toast.makeText(this, "Error loading image: Image URI is null", Toast.LENGTH_SHORT).show();
+                return;
             }
+            progressBar.setVisibility(View.VISIBLE);
+            pipeline.submit(cancellation -> {
+                try {
+                    // Decoded once at encode size and shared by the preview and the encoder
+                    PipelineMetrics.Recorder metrics = PipelineMetrics.start("load");
+                    Bitmap loaded = ImageLoader.load(getContentResolver(), imageUri, MAX_WIDTH, MAX_HEIGHT);
+                    metrics.record(PipelineMetrics.Stage.RESIZE, loaded.getAllocationByteCount());
+                    metrics.finish();
+                    Log.d(TAG, "Loaded image at " + loaded.getWidth() + "x" + loaded.getHeight());
+                    runOnUiThread(() -> {
+                        if (cancellation.isCancelled()) {
+                            return;
+                        }
+                        selectedImage = loaded;
+                        imageView.setImageBitmap(loaded);
+                        Toast.makeText(this, "Image selected", Toast.LENGTH_SHORT).show();
+                    });
+                } catch (Exception e) {
+                    Log.e(TAG, "Error loading image: " + e.getMessage(), e);
+                    runOnUiThread(() -> {
+                        if (!cancellation.isCancelled()) {
+                            Toast.makeText(this, "Error loading image: " + e.getMessage(), Toast.LENGTH_SHORT).show();
+                        }
+                    });
+                } finally {
+                    runOnUiThread(() -> {
+                        if (!cancellation.isCancelled()) {
+                            progressBar.setVisibility(View.GONE);
+                        }
+                    });
+                }
+            });
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,34 @@
+package com.example.smsto;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+// The most recent pipeline runs, oldest first, for the stats screen and CSV
+// export. Runs arrive from codec threads and are read on the UI thread.
+public final class PipelineStats implements PipelineMetrics.Listener {
+
+    private final int capacity;
+    private final ArrayDeque<PipelineMetrics.Run> runs;
+
+    public PipelineStats(int capacity) {
+        this.capacity = capacity;
+        this.runs = new ArrayDeque<>(capacity);
+    }
+
+    @Override
+    public synchronized void onRun(PipelineMetrics.Run run) {
+        if (runs.size() == capacity) {
+            runs.removeFirst();
+        }
+        runs.addLast(run);
+    }
+
+    public synchronized List<PipelineMetrics.Run> getRuns() {
+        return new ArrayList<>(runs);
+    }
+
+    public synchronized void clear() {
+        runs.clear();
+    }
+}
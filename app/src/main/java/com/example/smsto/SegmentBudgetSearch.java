@@ -0,0 +1,191 @@
+package com.example.smsto;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Finds the best-looking encoding whose payload fits in a given number of SMS
+// segments: the highest quality at full size, and only when not even
+// ACCEPTABLE_QUALITY fits there, the largest size that fits at that quality.
+// Below MIN_DIMENSION, quality gives way to MIN_QUALITY before giving up.
+// Every trial reuses the same scratch bitmap and frame buffer.
+public class SegmentBudgetSearch {
+
+    private static final String TAG = "SegmentBudgetSearch";
+    private static final int MIN_DIMENSION = 24;
+    private static final int MIN_QUALITY = 10;
+    // Shrinking the image looks better than compressing it harder than this
+    private static final int ACCEPTABLE_QUALITY = 40;
+    private static final int MAX_QUALITY = 90;
+
+    public static final class Result {
+        private final byte[] frame;
+        private final int width;
+        private final int height;
+        private final int quality;
+        private final int segments;
+
+        Result(byte[] frame, int width, int height, int quality, int segments) {
+            this.frame = frame;
+            this.width = width;
+            this.height = height;
+            this.quality = quality;
+            this.segments = segments;
+        }
+
+        public byte[] getFrame() {
+            return frame;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public int getQuality() {
+            return quality;
+        }
+
+        public int getSegments() {
+            return segments;
+        }
+    }
+
+    private final ImageEncoder imageCodec;
+    private final SmsImageCodec codec;
+    private final FrameBuffer frameBuffer = new FrameBuffer();
+    private final Paint paint = new Paint(Paint.FILTER_BITMAP_FLAG);
+    private final Canvas canvas = new Canvas();
+    private final Rect target = new Rect();
+    private Bitmap scratch;
+    private int trials;
+    private CodecScheduler.Cancellation cancellation;
+
+    public SegmentBudgetSearch(ImageEncoder imageCodec, SmsImageCodec codec) {
+        this.imageCodec = imageCodec;
+        this.codec = codec;
+    }
+
+    // Returns null when even the smallest size at MIN_QUALITY does not fit.
+    // Checks cancellation before every trial encode.
+    public Result search(Bitmap source, int maxDimension, int maxSegments, CodecScheduler.Cancellation cancellation) throws IOException {
+        this.cancellation = cancellation;
+        trials = 0;
+        try {
+            // Never scaled up, so a small source is also its own smallest size
+            int largest = Math.min(maxDimension, Math.max(source.getWidth(), source.getHeight()));
+            int smallest = Math.min(MIN_DIMENSION, largest);
+
+            int dimension = largest;
+            int bestQuality = bestQuality(source, dimension, ACCEPTABLE_QUALITY, maxSegments);
+            if (bestQuality < 0) {
+                dimension = largestDimension(source, smallest, largest - 1, ACCEPTABLE_QUALITY, maxSegments);
+                if (dimension >= 0) {
+                    // Shrunk until ACCEPTABLE_QUALITY fit, there may be room for more
+                    bestQuality = bestQuality(source, dimension, ACCEPTABLE_QUALITY, maxSegments);
+                } else {
+                    dimension = smallest;
+                    bestQuality = bestQuality(source, dimension, MIN_QUALITY, maxSegments);
+                    if (bestQuality < 0) {
+                        return null;
+                    }
+                }
+            }
+
+            int segments = encode(source, dimension, bestQuality);
+            Log.d(TAG, "Budget " + maxSegments + ": " + scratch.getWidth() + "x" + scratch.getHeight() + " q" + bestQuality
+                    + " -> " + segments + " segments after " + trials + " trials");
+            return new Result(frameBuffer.toByteArray(), scratch.getWidth(), scratch.getHeight(), bestQuality, segments);
+        } finally {
+            this.cancellation = null;
+            canvas.setBitmap(null);
+            if (scratch != null) {
+                scratch.recycle();
+                scratch = null;
+            }
+        }
+    }
+
+    // Highest quality from floor up to MAX_QUALITY that fits at dimension, -1 if none does
+    private int bestQuality(Bitmap source, int dimension, int floor, int maxSegments) throws IOException {
+        if (encode(source, dimension, floor) > maxSegments) {
+            return -1;
+        }
+        int best = floor;
+        int low = floor + 1;
+        int high = MAX_QUALITY;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (encode(source, dimension, mid) <= maxSegments) {
+                best = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return best;
+    }
+
+    // Largest dimension from low to high that fits at quality, -1 if none does
+    private int largestDimension(Bitmap source, int low, int high, int quality, int maxSegments) throws IOException {
+        int best = -1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (encode(source, mid, quality) <= maxSegments) {
+                best = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return best;
+    }
+
+    private int encode(Bitmap source, int dimension, int quality) throws IOException {
+        cancellation.checkCancelled();
+        trials++;
+        float ratio = Math.min(1f, Math.min((float) dimension / source.getWidth(), (float) dimension / source.getHeight()));
+        int width = Math.max(1, Math.round(source.getWidth() * ratio));
+        int height = Math.max(1, Math.round(source.getHeight() * ratio));
+        if (scratch == null) {
+            scratch = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        } else if (scratch.getWidth() != width || scratch.getHeight() != height) {
+            if (scratch.getAllocationByteCount() >= width * height * 4) {
+                scratch.reconfigure(width, height, Bitmap.Config.ARGB_8888);
+            } else {
+                scratch.recycle();
+                scratch = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+            }
+        }
+        scratch.eraseColor(0);
+        canvas.setBitmap(scratch);
+        target.set(0, 0, width, height);
+        canvas.drawBitmap(source, null, target, paint);
+
+        frameBuffer.reset();
+        try (OutputStream out = codec.openFrameEncoder(frameBuffer, imageCodec.id())) {
+            imageCodec.compress(scratch, quality, out);
+        }
+        return codec.segmentCount(frameBuffer.buffer(), frameBuffer.size());
+    }
+
+    // Keeps its backing array across reset() so trials don't reallocate
+    private static class FrameBuffer extends ByteArrayOutputStream {
+        FrameBuffer() {
+            super(8192);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.smsto;
+
+import android.app.Application;
+import android.os.Debug;
+import android.util.Log;
+
+public class SmsToApplication extends Application {
+
+    private static final int MAX_CACHE_MEMORY = 16 * 1024 * 1024;
+    private static final long MAX_CACHE_DISK = 8 * 1024 * 1024;
+    private static final int MAX_STATS_RUNS = 200;
+
+    private DecodeCache decodeCache;
+    private final PipelineStats pipelineStats = new PipelineStats(MAX_STATS_RUNS);
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        // Shared by every DecodeActivity instance, so repeat pastes survive rotation
+        int memoryBudget = (int) Math.min(MAX_CACHE_MEMORY, Runtime.getRuntime().maxMemory() / 16);
+        decodeCache = new DecodeCache(getCacheDir(), memoryBudget, MAX_CACHE_DISK);
+        // Route codec module logging to logcat; release builds also strip the debug calls
+        CodecLog.setMinPriority(BuildConfig.DEBUG ? CodecLog.DEBUG : CodecLog.WARN);
+        CodecLog.setSink((priority, tag, message, error) -> {
+            if (error != null) {
+                message = message + '\n' + Log.getStackTraceString(error);
+            }
+            Log.println(priority, tag, message);
+        });
+        PipelineMetrics.setListener(pipelineStats);
+        // Process-wide, so a stage also counts whatever other threads allocate meanwhile
+        PipelineMetrics.setAllocationCounter(() -> {
+            String allocated = Debug.getRuntimeStat("art.gc.bytes-allocated");
+            return allocated != null ? Long.parseLong(allocated) : PipelineMetrics.UNKNOWN;
+        });
+    }
+
+    public DecodeCache getDecodeCache() {
+        return decodeCache;
+    }
+
+    public PipelineStats getPipelineStats() {
+        return pipelineStats;
+    }
+}
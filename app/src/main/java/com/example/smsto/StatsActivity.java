@@ -0,0 +1,159 @@
+package com.example.smsto;
+
+import android.content.Intent;
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+import androidx.appcompat.app.AppCompatActivity;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Per-stage timings of recent encode and decode runs, with CSV export for
+// trending them across builds
+public class StatsActivity extends AppCompatActivity {
+
+    private static final int EXPORT_CSV_REQUEST_CODE = 200;
+    private static final String TAG = "StatsActivity";
+
+    private TextView statsOutput;
+    private PipelineStats stats;
+    private final CodecScheduler.Lane exports = CodecScheduler.newLane(TAG);
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_stats);
+
+        stats = ((SmsToApplication) getApplication()).getPipelineStats();
+        statsOutput = findViewById(R.id.stats_output);
+        Button exportBtn = findViewById(R.id.export_csv_button);
+        Button clearBtn = findViewById(R.id.clear_stats_button);
+
+        exportBtn.setOnClickListener(v -> exportCsv());
+        clearBtn.setOnClickListener(v -> {
+            stats.clear();
+            showStats();
+        });
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        showStats();
+    }
+
+    @Override
+    protected void onDestroy() {
+        exports.close();
+        super.onDestroy();
+    }
+
+    private void showStats() {
+        List<PipelineMetrics.Run> runs = stats.getRuns();
+        if (runs.isEmpty()) {
+            statsOutput.setText(R.string.no_stats);
+            return;
+        }
+        statsOutput.setText(format(runs));
+    }
+
+    // Median per stage first, then every run newest first
+    private static String format(List<PipelineMetrics.Run> runs) {
+        Map<PipelineMetrics.Stage, List<Long>> wallTimes = new EnumMap<>(PipelineMetrics.Stage.class);
+        for (PipelineMetrics.Run run : runs) {
+            for (PipelineMetrics.StageMetric metric : run.getStages()) {
+                wallTimes.computeIfAbsent(metric.getStage(), stage -> new ArrayList<>()).add(metric.getWallNanos());
+            }
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append("Median of ").append(runs.size()).append(" runs\n");
+        for (Map.Entry<PipelineMetrics.Stage, List<Long>> entry : wallTimes.entrySet()) {
+            List<Long> times = entry.getValue();
+            Collections.sort(times);
+            sb.append(String.format(Locale.ROOT, "  %-18s %9s  (%d)\n",
+                    entry.getKey().label(), millis(times.get(times.size() / 2)), times.size()));
+        }
+
+        SimpleDateFormat time = new SimpleDateFormat("HH:mm:ss", Locale.ROOT);
+        for (int i = runs.size() - 1; i >= 0; i--) {
+            PipelineMetrics.Run run = runs.get(i);
+            sb.append('\n').append(String.format(Locale.ROOT, "#%d %s %s  %s\n",
+                    run.getId(), run.getName(), time.format(new Date(run.getStartedAt())), millis(run.getWallNanos())));
+            for (PipelineMetrics.StageMetric metric : run.getStages()) {
+                sb.append(String.format(Locale.ROOT, "  %-18s %9s  alloc %8s  out %8s\n",
+                        metric.getStage().label(), millis(metric.getWallNanos()),
+                        bytes(metric.getAllocatedBytes()), bytes(metric.getOutputBytes())));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.1f ms", nanos / 1e6);
+    }
+
+    private static String bytes(long count) {
+        if (count == PipelineMetrics.UNKNOWN) {
+            return "?";
+        }
+        return count < 1024 ? count + " B" : String.format(Locale.ROOT, "%.1f KB", count / 1024.0);
+    }
+
+    private void exportCsv() {
+        if (stats.getRuns().isEmpty()) {
+            Toast.makeText(this, "No runs to export!", Toast.LENGTH_SHORT).show();
+            return;
+        }
+        Intent intent = new Intent(Intent.ACTION_CREATE_DOCUMENT);
+        intent.addCategory(Intent.CATEGORY_OPENABLE);
+        intent.setType("text/csv");
+        intent.putExtra(Intent.EXTRA_TITLE, "pipeline_stats_" + System.currentTimeMillis() + ".csv");
+        startActivityForResult(intent, EXPORT_CSV_REQUEST_CODE);
+    }
+
+    @Override
+    protected void onActivityResult(int requestCode, int resultCode, @Nullable Intent data) {
+        super.onActivityResult(requestCode, resultCode, data);
+        if (requestCode == EXPORT_CSV_REQUEST_CODE && resultCode == RESULT_OK && data != null && data.getData() != null) {
+            Uri uri = data.getData();
+            List<PipelineMetrics.Run> runs = stats.getRuns();
+            exports.submit(cancellation -> {
+                String error = null;
+                try (OutputStream out = getContentResolver().openOutputStream(uri)) {
+                    if (out == null) {
+                        throw new IOException("Cannot open " + uri);
+                    }
+                    Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+                    PipelineMetrics.writeCsv(writer, runs);
+                    writer.flush();
+                } catch (IOException e) {
+                    Log.e(TAG, "Failed to export stats: " + e.getMessage(), e);
+                    error = e.getMessage();
+                }
+                String message = error == null ? "Exported " + runs.size() + " runs" : "Failed to export stats: " + error;
+                runOnUiThread(() -> {
+                    if (!cancellation.isCancelled()) {
+                        Toast.makeText(this, message, Toast.LENGTH_SHORT).show();
+                    }
+                });
+            });
+        }
+    }
+}
@@ -0,0 +1,35 @@
+// Pure-JVM payload codecs shared by the app, unit tests and the JMH suite.
+// Benchmarks: ./gradlew :codec:jmh (results in codec/build/results/jmh)
+plugins {
+    `java-library`
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    testImplementation(libs.junit)
+}
+
+jmh {
+    jmhVersion = libs.versions.jmh.get()
+    includeTests = false
+    profilers.add("gc")
+    resultFormat = "JSON"
+    fork = 1
+    warmupIterations = 3
+    iterations = 5
+    timeOnIteration = "2s"
+    warmup = "1s"
+}
+
+// Prints fresh code lengths for HuffmanTables, see HuffmanTableTrainer
+tasks.register<JavaExec>("trainHuffmanTables") {
+    description = "Trains static Huffman tables on -Pcorpus=<files> or generated JPEGs"
+    classpath = sourceSets["jmh"].runtimeClasspath
+    mainClass.set("com.example.smsto.HuffmanTableTrainer")
+    args = (findProperty("corpus") as String?)?.split(",") ?: emptyList()
+}
@@ -0,0 +1,55 @@
+package com.example.smsto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// The FEC segment layer alone at typical compressed payload sizes. Decoding
+// loses the leading data segments, the worst case where every parity segment
+// goes into the repair.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class FecBenchmark {
+
+    private static final int MESSAGE_ID = 1;
+
+    @Param({"1024", "4096", "8192", "16384"})
+    public int frameSize;
+
+    @Param({"3"})
+    public int paritySegments;
+
+    private byte[] frame;
+    private String[] damagedBodies;
+
+    @Setup
+    public void setUp() {
+        frame = new byte[frameSize];
+        new Random(42).nextBytes(frame);
+        List<String> segments = encode();
+        damagedBodies = new String[segments.size()];
+        for (int i = paritySegments; i < segments.size(); i++) {
+            damagedBodies[i] = SmsSegment.parse(segments.get(i)).getBody();
+        }
+    }
+
+    @Benchmark
+    public List<String> encode() {
+        return FecSegments.encode(frame, TextCodecs.GSM, MESSAGE_ID, paritySegments);
+    }
+
+    @Benchmark
+    public byte[] decodeWithLostDataSegments() {
+        return FecSegments.decode(damagedBodies);
+    }
+}
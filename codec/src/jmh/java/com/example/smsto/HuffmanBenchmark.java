@@ -0,0 +1,89 @@
+package com.example.smsto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.io.IOException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+// HuffmanEncoder/HuffmanDecoder on the inputs they see in the app: Base64
+// text of a JPEG for the string coders, the JPEG itself for the byte coder.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HuffmanBenchmark {
+
+    @Param({"120x90", "160x120", "200x200"})
+    public String size;
+
+    private byte[] jpeg;
+    private String base64;
+    private byte[] tableCoded;
+    private String codeMap;
+    private byte[] canonical;
+    private byte[] bytePacket;
+    private HuffmanCodec sharedCodec;
+
+    @Setup
+    public void setUp() throws IOException {
+        jpeg = PayloadCorpus.jpeg(size);
+        base64 = Base64.getEncoder().encodeToString(jpeg);
+        HuffmanEncoder encoder = new HuffmanEncoder();
+        tableCoded = encoder.encode(base64);
+        codeMap = encoder.serializeCodeMap();
+        canonical = new HuffmanEncoder().encodeCanonical(base64);
+        bytePacket = new HuffmanEncoder().encodeBytes(jpeg);
+        sharedCodec = HuffmanCodec.fromPacket(bytePacket, 0, bytePacket.length);
+    }
+
+    @Benchmark
+    public byte[] encodeString() {
+        return new HuffmanEncoder().encode(base64);
+    }
+
+    @Benchmark
+    public String decodeString() {
+        return new HuffmanDecoder().decode(codeMap, tableCoded);
+    }
+
+    @Benchmark
+    public byte[] encodeCanonical() {
+        return new HuffmanEncoder().encodeCanonical(base64);
+    }
+
+    @Benchmark
+    public String decodeCanonical() {
+        return new HuffmanDecoder().decodeCanonical(canonical);
+    }
+
+    @Benchmark
+    public byte[] encodeBytes() {
+        return new HuffmanEncoder().encodeBytes(jpeg);
+    }
+
+    @Benchmark
+    public byte[] decodeBytes() {
+        return new HuffmanDecoder().decodeBytes(bytePacket);
+    }
+
+    // One table built up front and shared, as a batch encoder would use it
+    @Benchmark
+    @Threads(4)
+    public byte[] encodeBytesShared() {
+        return sharedCodec.encodePacket(jpeg, 0, jpeg.length);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public byte[] decodeBytesShared() {
+        return sharedCodec.decodePacket(bytePacket, 0, bytePacket.length);
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.smsto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Regenerates the code lengths in HuffmanTables from sample payloads:
+//   ./gradlew :codec:trainHuffmanTables [-Pcorpus=a.jpg,b.jpg,...]
+// Without a corpus it trains on generated JPEGs with seeds the benchmarks don't
+// use. Prints the hex string to paste into HuffmanTables under a NEW table ID;
+// shipped tables are on the wire and must never change.
+public final class HuffmanTableTrainer {
+
+    private static final String[] SIZES = {"120x90", "160x120", "200x150", "200x200"};
+    private static final int SEEDS_PER_SIZE = 16;
+
+    private HuffmanTableTrainer() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        List<byte[]> samples = new ArrayList<>();
+        if (args.length > 0) {
+            for (String path : args) {
+                samples.add(Files.readAllBytes(Paths.get(path)));
+            }
+        } else {
+            for (String size : SIZES) {
+                int separator = size.indexOf('x');
+                int width = Integer.parseInt(size.substring(0, separator));
+                int height = Integer.parseInt(size.substring(separator + 1));
+                for (int seed = 1; seed <= SEEDS_PER_SIZE; seed++) {
+                    samples.add(PayloadCorpus.jpeg(width, height, seed * 7919L));
+                }
+            }
+        }
+
+        // Every byte keeps a code so the table can encode any payload
+        int[] freq = new int[CanonicalHuffman.BYTE_ALPHABET_SIZE];
+        Arrays.fill(freq, 1);
+        long totalBytes = 0;
+        for (byte[] sample : samples) {
+            for (byte b : sample) {
+                freq[b & 0xFF]++;
+            }
+            totalBytes += sample.length;
+        }
+        HuffmanCodec table = HuffmanCodec.fromFrequencies(freq);
+
+        long staticBytes = 0;
+        long adaptiveBytes = 0;
+        for (byte[] sample : samples) {
+            staticBytes += 1 + (table.encode(sample, 0, sample.length).getBitCount() + 7) / 8;
+            adaptiveBytes += 1 + HuffmanCodec.train(sample, 0, sample.length).encodePacket(sample, 0, sample.length).length;
+        }
+        System.out.println(samples.size() + " samples, " + totalBytes + " bytes");
+        System.out.printf("static %d bytes (%.1f%%), adaptive %d bytes (%.1f%%)%n",
+                staticBytes, 100.0 * staticBytes / totalBytes, adaptiveBytes, 100.0 * adaptiveBytes / totalBytes);
+        // As a Java string literal, 64 bytes' lengths per line
+        String lengths = HuffmanTables.formatLengths(table.getLengths());
+        for (int i = 0; i < lengths.length(); i += 64) {
+            System.out.println((i == 0 ? "            \"" : "            + \"") + lengths.substring(i, i + 64) + "\"");
+        }
+    }
+}
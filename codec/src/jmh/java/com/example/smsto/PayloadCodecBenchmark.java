@@ -0,0 +1,77 @@
+package com.example.smsto;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+// Every registered payload codec on the JPEG corpus. Besides throughput and
+// the gc profiler's allocation rate, encode reports the frame size as a
+// percentage of the JPEG (the "ratio" secondary result; lower is better).
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PayloadCodecBenchmark {
+
+    // Deflate 9, deflate + JPEG dictionary, deflate 1/5/9, gzip, Huffman, static Huffman, LZ + Huffman
+    @Param({"1", "2", "17", "21", "25", "32", "48", "49", "64"})
+    public int codec;
+
+    @Param({"120x90", "160x120", "200x200"})
+    public String size;
+
+    private PayloadCodec payloadCodec;
+    private byte[] jpeg;
+    private byte[] frame;
+    private final ByteArrayOutputStream out = new ByteArrayOutputStream(16384);
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Ratio {
+        // Assigned rather than accumulated, so single-threaded runs report it as-is
+        public double ratio;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ratio = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        payloadCodec = PayloadCodecs.forId(codec);
+        jpeg = PayloadCorpus.jpeg(size);
+        frame = encodeFrame();
+    }
+
+    @Benchmark
+    public int encode(Ratio ratio) throws IOException {
+        byte[] encoded = encodeFrame();
+        ratio.ratio = 100.0 * encoded.length / jpeg.length;
+        return encoded.length;
+    }
+
+    @Benchmark
+    public byte[] decode() throws IOException {
+        return PayloadFormat.decodeFrame(frame).getImage();
+    }
+
+    private byte[] encodeFrame() throws IOException {
+        out.reset();
+        try (OutputStream encoder = PayloadFormat.openFrameEncoder(out, PayloadFormat.IMAGE_CODEC_JPEG, payloadCodec)) {
+            encoder.write(jpeg);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.smsto;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.Color;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+// Photo-like JPEGs at the sizes and quality the app sends, generated from a
+// fixed seed so every run measures the same bytes without checked-in images.
+final class PayloadCorpus {
+
+    // Matches the app's default JPEG quality of 30
+    private static final float QUALITY = 0.3f;
+
+    private PayloadCorpus() {
+    }
+
+    // size is "<width>x<height>"
+    static byte[] jpeg(String size) throws IOException {
+        int separator = size.indexOf('x');
+        int width = Integer.parseInt(size.substring(0, separator));
+        int height = Integer.parseInt(size.substring(separator + 1));
+        return jpeg(width, height, size.hashCode());
+    }
+
+    static byte[] jpeg(int width, int height, long seed) throws IOException {
+        return encode(render(width, height, seed), QUALITY);
+    }
+
+    private static BufferedImage render(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        // Sky-to-ground gradient with soft shapes, then sensor-like noise
+        g.setPaint(new GradientPaint(0, 0, new Color(random.nextInt(0xFFFFFF)), 0, height, new Color(random.nextInt(0xFFFFFF))));
+        g.fillRect(0, 0, width, height);
+        for (int i = 0; i < 24; i++) {
+            g.setColor(new Color(random.nextInt(256), random.nextInt(256), random.nextInt(256), 96 + random.nextInt(160)));
+            int w = 8 + random.nextInt(width / 2);
+            int h = 8 + random.nextInt(height / 2);
+            if (random.nextBoolean()) {
+                g.fillOval(random.nextInt(width), random.nextInt(height), w, h);
+            } else {
+                g.fillRect(random.nextInt(width), random.nextInt(height), w, h);
+            }
+        }
+        g.dispose();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = image.getRGB(x, y);
+                int noise = random.nextInt(13) - 6;
+                int r = clamp(((rgb >> 16) & 0xFF) + noise);
+                int gr = clamp(((rgb >> 8) & 0xFF) + noise);
+                int b = clamp((rgb & 0xFF) + noise);
+                image.setRGB(x, y, (r << 16) | (gr << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static byte[] encode(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(quality);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (MemoryCacheImageOutputStream stream = new MemoryCacheImageOutputStream(out)) {
+            writer.setOutput(stream);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,59 @@
+package com.example.smsto;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// The whole SmsImageCodec path from JPEG bytes to SMS segments and back,
+// with and without Reed-Solomon parity segments.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PipelineBenchmark {
+
+    private static final int MESSAGE_ID = 1234;
+
+    @Param({"B", "G"})
+    public char textCodec;
+
+    @Param({"0", "2"})
+    public int paritySegments;
+
+    @Param({"200x200"})
+    public String size;
+
+    private SmsImageCodec codec;
+    private byte[] jpeg;
+    private String segments;
+
+    @Setup
+    public void setUp() throws IOException {
+        codec = SmsImageCodec.builder()
+                .textCodec(TextCodecs.forId(textCodec))
+                .paritySegments(paritySegments)
+                .build();
+        jpeg = PayloadCorpus.jpeg(size);
+        segments = String.join("", encode());
+    }
+
+    @Benchmark
+    public List<String> encode() throws IOException {
+        return codec.encode(jpeg, PayloadFormat.IMAGE_CODEC_JPEG, MESSAGE_ID);
+    }
+
+    @Benchmark
+    public byte[] decode() throws IOException {
+        SegmentReassembler reassembler = new SegmentReassembler();
+        reassembler.accept(segments);
+        return codec.decodeSegments(reassembler.getKind(), reassembler.getBodies()).getImage();
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.smsto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Base64;
+
+public class Base64TextCodec implements TextCodec {
+
+    @Override
+    public char id() {
+        return 'B';
+    }
+
+    @Override
+    public OutputStream encoder(Writer out) {
+        return Base64.getEncoder().wrap(new AsciiOutputStream(out));
+    }
+
+    @Override
+    public byte[] decode(String text) {
+        try {
+            return Base64.getDecoder().decode(text);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Bad Base-64");
+        }
+    }
+
+    @Override
+    public byte[] decodePrefix(String text) {
+        return decode(text.substring(0, text.length() & ~3));
+    }
+
+    @Override
+    public int maxBytes(int chars) {
+        return chars / 4 * 3;
+    }
+
+    private static class AsciiOutputStream extends OutputStream {
+        private final Writer out;
+        private final char[] chars = new char[512];
+
+        AsciiOutputStream(Writer out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b & 0xFF);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int count = Math.min(len, chars.length);
+                for (int i = 0; i < count; i++) {
+                    chars[i] = (char) (b[off + i] & 0xFF);
+                }
+                out.write(chars, 0, count);
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.smsto;
+
+import java.util.Arrays;
+
+// Packs MSB-first code words straight into a byte array.
+public final class BitWriter {
+
+    private byte[] buffer;
+    private int position;
+    private long accumulator;
+    private int pending;
+    private int bitCount;
+
+    public BitWriter(int initialCapacity) {
+        buffer = new byte[Math.max(1, initialCapacity)];
+    }
+
+    public void write(long code, int length) {
+        if (length > 32) {
+            write(code >>> 32, length - 32);
+            length = 32;
+        }
+        if (length <= 0) {
+            return;
+        }
+        accumulator = (accumulator << length) | (code & ((1L << length) - 1));
+        pending += length;
+        bitCount += length;
+        while (pending >= 8) {
+            pending -= 8;
+            put((byte) (accumulator >>> pending));
+        }
+    }
+
+    public int bitCount() {
+        return bitCount;
+    }
+
+    public byte[] toByteArray() {
+        int byteCount = (bitCount + 7) / 8;
+        byte[] result = Arrays.copyOf(buffer, byteCount);
+        if (pending > 0) {
+            // Unused low bits of the last byte stay zero
+            result[byteCount - 1] = (byte) (accumulator << (8 - pending));
+        }
+        return result;
+    }
+
+    private void put(byte b) {
+        if (position == buffer.length) {
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        }
+        buffer[position++] = b;
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.smsto;
+
+import java.util.Arrays;
+import java.util.PriorityQueue;
+
+// Canonical Huffman codes: only the code length of each symbol has to be sent,
+// the codes themselves are rebuilt deterministically on both sides.
+public final class CanonicalHuffman {
+
+    public static final String BASE64_ALPHABET = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/=";
+    public static final int MAX_CODE_LENGTH = 15;
+    // Packet header byte: format tag in the high five bits, padding bit count in the low three
+    public static final int FORMAT_BASE64 = 0xC0;
+    public static final int FORMAT_BYTES = 0xB0;
+    public static final int BYTE_ALPHABET_SIZE = 256;
+    public static final int FORMAT_MASK = 0xF8;
+
+    private static final int[] BASE64_INDEX = new int[128];
+
+    static {
+        Arrays.fill(BASE64_INDEX, -1);
+        for (int i = 0; i < BASE64_ALPHABET.length(); i++) {
+            BASE64_INDEX[BASE64_ALPHABET.charAt(i)] = i;
+        }
+    }
+
+    private CanonicalHuffman() {
+    }
+
+    public static int base64Index(char c) {
+        return c < 128 ? BASE64_INDEX[c] : -1;
+    }
+
+    // Huffman code lengths for freq, limited to maxLength by flattening the
+    // frequencies until the tree is shallow enough
+    public static int[] codeLengths(int[] freq, int maxLength) {
+        int[] scaled = freq.clone();
+        while (true) {
+            int[] lengths = huffmanLengths(scaled);
+            int longest = 0;
+            for (int length : lengths) {
+                longest = Math.max(longest, length);
+            }
+            if (longest <= maxLength) {
+                return lengths;
+            }
+            for (int i = 0; i < scaled.length; i++) {
+                if (scaled[i] > 0) {
+                    scaled[i] = (scaled[i] + 1) >>> 1;
+                }
+            }
+        }
+    }
+
+    // Assigns codes in (length, symbol) order, MSB first
+    public static int[] codes(int[] lengths) {
+        int[] lengthCount = new int[MAX_CODE_LENGTH + 2];
+        for (int length : lengths) {
+            lengthCount[length]++;
+        }
+        lengthCount[0] = 0;
+        int[] nextCode = new int[MAX_CODE_LENGTH + 2];
+        int code = 0;
+        for (int length = 1; length <= MAX_CODE_LENGTH + 1; length++) {
+            code = (code + lengthCount[length - 1]) << 1;
+            nextCode[length] = code;
+        }
+        int[] codes = new int[lengths.length];
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            if (lengths[symbol] > 0) {
+                codes[symbol] = nextCode[lengths[symbol]]++;
+            }
+        }
+        return codes;
+    }
+
+    public static HuffmanTable table(int[] lengths) {
+        int[] codes = codes(lengths);
+        int[] symbols = new int[lengths.length];
+        int[] usedCodes = new int[lengths.length];
+        int[] usedLengths = new int[lengths.length];
+        int count = 0;
+        long kraft = 0;
+        for (int symbol = 0; symbol < lengths.length; symbol++) {
+            if (lengths[symbol] > 0) {
+                symbols[count] = symbol;
+                usedCodes[count] = codes[symbol];
+                usedLengths[count] = lengths[symbol];
+                kraft += 1L << (MAX_CODE_LENGTH - lengths[symbol]);
+                count++;
+            }
+        }
+        if (count == 0 || kraft > 1L << MAX_CODE_LENGTH) {
+            throw new IllegalArgumentException("Invalid code lengths");
+        }
+        return HuffmanTable.build(symbols, usedCodes, usedLengths, count);
+    }
+
+    // Two lengths per byte, high nibble first
+    public static int[] unpackLengths(byte[] in, int offset, int symbolCount) {
+        if (in.length < offset + packedSize(symbolCount)) {
+            throw new IllegalArgumentException("Truncated code length header");
+        }
+        int[] lengths = new int[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            int b = in[offset + i / 2];
+            lengths[i] = (i & 1) == 0 ? (b >>> 4) & 0x0F : b & 0x0F;
+        }
+        return lengths;
+    }
+
+    public static int packedSize(int symbolCount) {
+        return (symbolCount + 1) / 2;
+    }
+
+    public static int headerSize(int symbolCount) {
+        return 1 + packedSize(symbolCount);
+    }
+
+    // Writes the format byte and packed code lengths, ready for totalBits of codes
+    public static BitWriter newPacket(int format, int[] lengths, long totalBits) {
+        int headerSize = headerSize(lengths.length);
+        if (totalBits > Integer.MAX_VALUE - headerSize * 8L) {
+            throw new IllegalStateException("Encoded data too large: " + totalBits + " bits");
+        }
+        BitWriter writer = new BitWriter(headerSize + (int) ((totalBits + 7) / 8));
+        int padding = (int) ((8 - totalBits % 8) % 8);
+        writer.write(format | padding, 8);
+        for (int symbol = 0; symbol < (headerSize - 1) * 2; symbol++) {
+            writer.write(symbol < lengths.length ? lengths[symbol] : 0, 4);
+        }
+        return writer;
+    }
+
+    public static boolean hasFormat(byte[] packet, int format) {
+        return packet != null && packet.length > 0 && (packet[0] & FORMAT_MASK) == format;
+    }
+
+    private static int[] huffmanLengths(int[] freq) {
+        int symbolCount = freq.length;
+        // Internal nodes live after the leaves; parent[] links every node to its parent
+        int[] parent = new int[symbolCount * 2];
+        long[] weight = new long[symbolCount * 2];
+        PriorityQueue<Integer> pq = new PriorityQueue<>((a, b) -> weight[a] != weight[b] ? Long.compare(weight[a], weight[b]) : a - b);
+        for (int i = 0; i < symbolCount; i++) {
+            if (freq[i] > 0) {
+                weight[i] = freq[i];
+                pq.offer(i);
+            }
+        }
+        int[] lengths = new int[symbolCount];
+        if (pq.size() == 1) {
+            lengths[pq.poll()] = 1;
+            return lengths;
+        }
+        int next = symbolCount;
+        while (pq.size() > 1) {
+            int left = pq.poll();
+            int right = pq.poll();
+            weight[next] = weight[left] + weight[right];
+            parent[left] = next;
+            parent[right] = next;
+            pq.offer(next++);
+        }
+        int root = next - 1;
+        for (int i = 0; i < symbolCount; i++) {
+            if (freq[i] > 0) {
+                int depth = 0;
+                for (int node = i; node != root; node = parent[node]) {
+                    depth++;
+                }
+                lengths[i] = depth;
+            }
+        }
+        return lengths;
+    }
+}
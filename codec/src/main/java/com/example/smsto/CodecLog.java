@@ -0,0 +1,81 @@
+package com.example.smsto;
+
+// Logging for the codec classes, which can't depend on android.util.Log.
+// Messages go nowhere until the host installs a sink.
+//
+// Anything that builds a message on a hot path checks isLoggable first so a
+// disabled level costs one volatile read and no string work. Release builds
+// strip the checks and debug calls outright, see app/proguard-rules.pro.
+public final class CodecLog {
+
+    // Same values as android.util.Log
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    public interface Sink {
+        void log(int priority, String tag, String message, Throwable error);
+    }
+
+    private static volatile Sink sink;
+    private static volatile int minPriority = DEBUG;
+
+    private CodecLog() {
+    }
+
+    public static void setSink(Sink newSink) {
+        sink = newSink;
+    }
+
+    // Messages below this priority are dropped before they are built
+    public static void setMinPriority(int priority) {
+        minPriority = priority;
+    }
+
+    public static boolean isLoggable(int priority) {
+        return priority >= minPriority && sink != null;
+    }
+
+    public static void v(String tag, String message) {
+        log(VERBOSE, tag, message, null);
+    }
+
+    public static void d(String tag, String message) {
+        log(DEBUG, tag, message, null);
+    }
+
+    public static void w(String tag, String message) {
+        log(WARN, tag, message, null);
+    }
+
+    public static void e(String tag, String message) {
+        log(ERROR, tag, message, null);
+    }
+
+    public static void e(String tag, String message, Throwable error) {
+        log(ERROR, tag, message, error);
+    }
+
+    // Start of a timed call, 0 when debug logging is off so the clock isn't read
+    public static long startTimer() {
+        return isLoggable(DEBUG) ? System.nanoTime() : 0;
+    }
+
+    // One aggregate line per call, "<operation>: <in> -> <out> in <n> us". Takes the
+    // sizes rather than a message so callers build nothing when debug logging is off.
+    public static void timing(String tag, long startNanos, String operation, long inputSize, long outputSize) {
+        if (startNanos != 0 && isLoggable(DEBUG)) {
+            log(DEBUG, tag, operation + ": " + inputSize + " -> " + outputSize + " in "
+                    + (System.nanoTime() - startNanos) / 1000 + " us", null);
+        }
+    }
+
+    private static void log(int priority, String tag, String message, Throwable error) {
+        Sink current = sink;
+        if (current != null && priority >= minPriority) {
+            current.log(priority, tag, message, error);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.smsto;
+
+import java.io.IOException;
+import java.io.Writer;
+
+// Counts the characters passed to out. The text codecs write one character at
+// a time, so this boundary is counted but never timed. Closing does not close
+// out: the owner closes it separately, so that step can be timed as a stage.
+final class CountingWriter extends Writer {
+
+    private final Writer out;
+    private long count;
+
+    CountingWriter(Writer out) {
+        this.out = out;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        out.write(c);
+        count++;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        out.write(cbuf, off, len);
+        count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.flush();
+    }
+}
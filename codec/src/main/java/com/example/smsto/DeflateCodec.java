@@ -0,0 +1,138 @@
+package com.example.smsto;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipException;
+
+// Raw deflate, optionally primed with a preset dictionary whose ID leads the stream
+public class DeflateCodec implements PayloadCodec {
+
+    private static final int BUFFER_SIZE = 4096;
+
+    private final int id;
+    private final String name;
+    private final int level;
+    private final int dictionary;
+
+    DeflateCodec(int id, String name, int level, int dictionary) {
+        this.id = id;
+        this.name = name;
+        this.level = level;
+        this.dictionary = dictionary;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return name;
+    }
+
+    @Override
+    public OutputStream encoder(OutputStream out) throws IOException {
+        Deflater deflater = new Deflater(level, true);
+        if (dictionary != DeflateDictionaries.NONE) {
+            out.write(dictionary);
+            deflater.setDictionary(DeflateDictionaries.get(dictionary));
+        }
+        return new DeflaterOutputStream(out, deflater, BUFFER_SIZE) {
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+    }
+
+    @Override
+    public byte[] decode(byte[] data, int offset, int length) throws IOException {
+        Inflater inflater = new Inflater(true);
+        try {
+            if (dictionary != DeflateDictionaries.NONE) {
+                if (length < 1) {
+                    throw new EOFException("Payload is truncated");
+                }
+                // Raw streams never ask for their dictionary, it has to be set up front
+                inflater.setDictionary(presetDictionary(data[offset] & 0xFF));
+                offset++;
+                length--;
+            }
+            try (InputStream in = new InflaterInputStream(new ByteArrayInputStream(data, offset, length), inflater, BUFFER_SIZE)) {
+                return readAll(in);
+            }
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // Inflates as far as the input goes; deflate output is a prefix of the original
+    @Override
+    public byte[] decodePrefix(byte[] data, int offset, int length) {
+        Inflater inflater = new Inflater(true);
+        try {
+            if (dictionary != DeflateDictionaries.NONE) {
+                if (length < 1) {
+                    return new byte[0];
+                }
+                inflater.setDictionary(DeflateDictionaries.get(data[offset] & 0xFF));
+                offset++;
+                length--;
+            }
+            inflater.setInput(data, offset, length);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+            byte[] buffer = new byte[BUFFER_SIZE];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                if (out.size() + n > PayloadCodecs.MAX_DECODED_SIZE) {
+                    return null;
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            return null;
+        } finally {
+            inflater.end();
+        }
+    }
+
+    // The ID comes off the wire, so an unknown one is corrupt input rather than a bug
+    private static byte[] presetDictionary(int id) throws ZipException {
+        try {
+            return DeflateDictionaries.get(id);
+        } catch (IllegalArgumentException e) {
+            throw new ZipException(e.getMessage());
+        }
+    }
+
+    static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BUFFER_SIZE);
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            if (out.size() + n > PayloadCodecs.MAX_DECODED_SIZE) {
+                throw new ZipException("Payload decodes to more than " + PayloadCodecs.MAX_DECODED_SIZE + " bytes");
+            }
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
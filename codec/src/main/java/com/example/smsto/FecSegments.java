@@ -0,0 +1,124 @@
+package com.example.smsto;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Spreads a payload frame over k data segments plus m Reed-Solomon parity
+// segments, any k of which rebuild it. Each segment body is
+//   <text codec> <data shard count:2> text(shard)
+// and the data shards carry the frame length followed by the frame.
+public final class FecSegments {
+
+    private static final int BODY_HEADER_LENGTH = 3;
+    // At most one concatenated SMS part, like SmsSegmentSink. Shards are spread
+    // evenly and pairs can carry 14 bits, so segments often come out shorter and
+    // later ones straddle carrier parts; a lost part then costs at most two.
+    private static final int BODY_SEPTETS = SmsSegmenter.GSM_MULTIPART_SEPTETS - SmsSegment.HEADER_LENGTH - BODY_HEADER_LENGTH;
+    private static final int LENGTH_PREFIX = 4;
+
+    private FecSegments() {
+    }
+
+    public static List<String> encode(byte[] frame, TextCodec codec, int messageId, int paritySegments) {
+        int maxShardSize = codec.maxBytes(BODY_SEPTETS);
+        int padded = LENGTH_PREFIX + frame.length;
+        int dataShards = (padded + maxShardSize - 1) / maxShardSize;
+        int total = dataShards + paritySegments;
+        if (total > ReedSolomon.MAX_SHARDS) {
+            throw new IllegalStateException("Payload needs " + total + " segments, FEC limit is " + ReedSolomon.MAX_SHARDS);
+        }
+        // Spread the bytes evenly so the last shard carries as little padding as possible
+        int shardSize = (padded + dataShards - 1) / dataShards;
+
+        byte[][] data = new byte[dataShards][shardSize];
+        byte[] header = {(byte) (frame.length >>> 24), (byte) (frame.length >>> 16), (byte) (frame.length >>> 8), (byte) frame.length};
+        for (int i = 0; i < padded; i++) {
+            data[i / shardSize][i % shardSize] = i < LENGTH_PREFIX ? header[i] : frame[i - LENGTH_PREFIX];
+        }
+        byte[][] parity = new ReedSolomon(dataShards, paritySegments).encodeParity(data);
+
+        List<String> segments = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            byte[] shard = i < dataShards ? data[i] : parity[i - dataShards];
+            StringBuilder body = new StringBuilder(BODY_SEPTETS + BODY_HEADER_LENGTH).append(codec.id());
+            SmsSegment.appendField(body, dataShards);
+            body.append(TextCodecs.encode(codec, shard));
+            segments.add(new SmsSegment(SmsSegment.KIND_FEC, messageId, i, total, body.toString()).format());
+        }
+        return segments;
+    }
+
+    public static int segmentCount(int frameLength, TextCodec codec, int paritySegments) {
+        int maxShardSize = codec.maxBytes(BODY_SEPTETS);
+        return (LENGTH_PREFIX + frameLength + maxShardSize - 1) / maxShardSize + paritySegments;
+    }
+
+    public static int dataShards(String body) {
+        if (body.length() < BODY_HEADER_LENGTH) {
+            throw new IllegalArgumentException("FEC segment body is truncated");
+        }
+        return SmsSegment.field(body, 1);
+    }
+
+    // Start of the frame carried by the leading run of data segments, without
+    // waiting for enough segments to run the erasure decoder
+    public static byte[] decodePrefix(String[] bodies) {
+        ByteArrayOutputStream joined = new ByteArrayOutputStream();
+        int dataShards = -1;
+        for (int i = 0; i < bodies.length && bodies[i] != null; i++) {
+            dataShards = dataShards(bodies[i]);
+            if (i >= dataShards) {
+                break;
+            }
+            byte[] shard = TextCodecs.forId(bodies[i].charAt(0)).decode(bodies[i].substring(BODY_HEADER_LENGTH));
+            joined.write(shard, 0, shard.length);
+        }
+        byte[] bytes = joined.toByteArray();
+        if (bytes.length <= LENGTH_PREFIX) {
+            return new byte[0];
+        }
+        int length = ((bytes[0] & 0xFF) << 24) | ((bytes[1] & 0xFF) << 16) | ((bytes[2] & 0xFF) << 8) | (bytes[3] & 0xFF);
+        if (length < 0) {
+            throw new IllegalArgumentException("Invalid FEC frame length: " + length);
+        }
+        // The last data shard is zero padded past the frame
+        return Arrays.copyOfRange(bytes, LENGTH_PREFIX, LENGTH_PREFIX + Math.min(length, bytes.length - LENGTH_PREFIX));
+    }
+
+    // bodies holds every segment slot, null where a segment is missing
+    public static byte[] decode(String[] bodies) {
+        int dataShards = -1;
+        byte[][] shards = new byte[bodies.length][];
+        int shardSize = -1;
+        for (int i = 0; i < bodies.length; i++) {
+            if (bodies[i] == null) {
+                continue;
+            }
+            dataShards = dataShards(bodies[i]);
+            TextCodec codec = TextCodecs.forId(bodies[i].charAt(0));
+            shards[i] = codec.decode(bodies[i].substring(BODY_HEADER_LENGTH));
+            if (shardSize >= 0 && shards[i].length != shardSize) {
+                throw new IllegalArgumentException("FEC segments have mismatched sizes");
+            }
+            shardSize = shards[i].length;
+        }
+        if (dataShards <= 0 || dataShards > bodies.length) {
+            throw new IllegalArgumentException("No usable FEC segments");
+        }
+
+        byte[][] data = new ReedSolomon(dataShards, bodies.length - dataShards).decode(shards);
+        byte[] joined = new byte[dataShards * shardSize];
+        for (int i = 0; i < dataShards; i++) {
+            System.arraycopy(data[i], 0, joined, i * shardSize, shardSize);
+        }
+        int length = ((joined[0] & 0xFF) << 24) | ((joined[1] & 0xFF) << 16) | ((joined[2] & 0xFF) << 8) | (joined[3] & 0xFF);
+        if (length < 0 || length > joined.length - LENGTH_PREFIX) {
+            throw new IllegalArgumentException("Invalid FEC frame length: " + length);
+        }
+        byte[] frame = new byte[length];
+        System.arraycopy(joined, LENGTH_PREFIX, frame, 0, length);
+        return frame;
+    }
+}
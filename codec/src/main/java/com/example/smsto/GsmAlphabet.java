@@ -0,0 +1,39 @@
+package com.example.smsto;
+
+// GSM 03.38 default alphabet, indexed by septet value
+public final class GsmAlphabet {
+
+    public static final String BASIC = "@\u00A3$\u00A5\u00E8\u00E9\u00F9\u00EC\u00F2\u00C7\n\u00D8\u00F8\r\u00C5\u00E5\u0394_\u03A6\u0393\u039B\u03A9\u03A0\u03A8\u03A3\u0398\u039E\u001B\u00C6\u00E6\u00DF\u00C9"
+            + " !\"#\u00A4%&'()*+,-./0123456789:;<=>?"
+            + "\u00A1ABCDEFGHIJKLMNOPQRSTUVWXYZ\u00C4\u00D6\u00D1\u00DC\u00A7"
+            + "\u00BFabcdefghijklmnopqrstuvwxyz\u00E4\u00F6\u00F1\u00FC\u00E0";
+    // Characters reached through the escape septet, each costing two septets
+    public static final String EXTENSION = "\f^{}\\[~]|\u20AC";
+    public static final char ESCAPE = '\u001B';
+
+    private static final int TABLE_SIZE = 0x400;
+    private static final byte[] SEPTETS = new byte[TABLE_SIZE];
+
+    static {
+        for (int i = 0; i < BASIC.length(); i++) {
+            SEPTETS[BASIC.charAt(i)] = 1;
+        }
+        for (int i = 0; i < EXTENSION.length(); i++) {
+            char c = EXTENSION.charAt(i);
+            if (c < TABLE_SIZE) {
+                SEPTETS[c] = 2;
+            }
+        }
+    }
+
+    private GsmAlphabet() {
+    }
+
+    // Septets needed to send c in GSM-7, or 0 if it forces UCS-2
+    public static int septets(char c) {
+        if (c < TABLE_SIZE) {
+            return SEPTETS[c];
+        }
+        return c == '\u20AC' ? 2 : 0;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.smsto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Arrays;
+
+// basE91-style coding over the GSM 03.38 basic set: 13 or 14 bits per character
+// pair, about 6.9 bits per character with 122 symbols. Escape, line breaks and
+// space are left out, as are '#' and '*', which frame payloads and segments.
+public class GsmBaseNCodec implements TextCodec {
+
+    private static final String EXCLUDED = "\u001B\n\r #*";
+
+    private final char[] alphabet;
+    private final int[] index;
+    private final int base;
+    // Pairs whose low 13 bits are below this carry a 14th bit
+    private final int threshold;
+
+    public GsmBaseNCodec() {
+        StringBuilder symbols = new StringBuilder();
+        for (int i = 0; i < GsmAlphabet.BASIC.length(); i++) {
+            char c = GsmAlphabet.BASIC.charAt(i);
+            if (EXCLUDED.indexOf(c) < 0) {
+                symbols.append(c);
+            }
+        }
+        alphabet = symbols.toString().toCharArray();
+        base = alphabet.length;
+        threshold = base * base - 8192;
+        int maxChar = 0;
+        for (char c : alphabet) {
+            maxChar = Math.max(maxChar, c);
+        }
+        index = new int[maxChar + 1];
+        Arrays.fill(index, -1);
+        for (int i = 0; i < base; i++) {
+            index[alphabet[i]] = i;
+        }
+    }
+
+    @Override
+    public char id() {
+        return 'G';
+    }
+
+    public int base() {
+        return base;
+    }
+
+    @Override
+    public int maxBytes(int chars) {
+        // Worst case every pair carries only 13 bits
+        return chars / 2 * 13 / 8;
+    }
+
+    @Override
+    public OutputStream encoder(Writer out) {
+        return new OutputStream() {
+            private int queue;
+            private int bits;
+            private boolean closed;
+
+            @Override
+            public void write(int b) throws IOException {
+                queue |= (b & 0xFF) << bits;
+                bits += 8;
+                if (bits > 13) {
+                    int v = queue & 8191;
+                    if (v >= threshold) {
+                        queue >>>= 13;
+                        bits -= 13;
+                    } else {
+                        v = queue & 16383;
+                        queue >>>= 14;
+                        bits -= 14;
+                    }
+                    out.write(alphabet[v % base]);
+                    out.write(alphabet[v / base]);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                if (bits > 0) {
+                    out.write(alphabet[queue % base]);
+                    if (bits > 7 || queue >= base) {
+                        out.write(alphabet[queue / base]);
+                    }
+                }
+                out.close();
+            }
+        };
+    }
+
+    // A lone trailing character is half a pair and would decode to a made-up byte
+    @Override
+    public byte[] decodePrefix(String text) {
+        return decode(text.substring(0, text.length() & ~1));
+    }
+
+    @Override
+    public byte[] decode(String text) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() * 7 / 8 + 1);
+        int queue = 0;
+        int bits = 0;
+        int v = -1;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            int d = c < index.length ? index[c] : -1;
+            if (d < 0) {
+                throw new IllegalArgumentException("Invalid character in payload: '" + c + "' at position " + i);
+            }
+            if (v < 0) {
+                v = d;
+            } else {
+                v += d * base;
+                queue |= v << bits;
+                bits += (v & 8191) >= threshold ? 13 : 14;
+                do {
+                    out.write(queue & 0xFF);
+                    queue >>>= 8;
+                    bits -= 8;
+                } while (bits > 7);
+                v = -1;
+            }
+        }
+        if (v >= 0) {
+            out.write((queue | v << bits) & 0xFF);
+        }
+        return out.toByteArray();
+    }
+}
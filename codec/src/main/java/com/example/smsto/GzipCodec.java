@@ -0,0 +1,41 @@
+package com.example.smsto;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// Deflate in a gzip wrapper, as the legacy payloads used. The 18 byte
+// header and trailer make it a poor fit for small images; kept for comparison.
+public class GzipCodec implements PayloadCodec {
+
+    private final int id;
+
+    GzipCodec(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return "GZIP";
+    }
+
+    @Override
+    public OutputStream encoder(OutputStream out) throws IOException {
+        return new GZIPOutputStream(out);
+    }
+
+    @Override
+    public byte[] decode(byte[] data, int offset, int length) throws IOException {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(data, offset, length))) {
+            return DeflateCodec.readAll(in);
+        }
+    }
+}
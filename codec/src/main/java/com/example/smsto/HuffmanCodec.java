@@ -0,0 +1,276 @@
+package com.example.smsto;
+
+import java.util.Arrays;
+
+// Canonical Huffman over the 256 byte values, built once from a code table and
+// immutable afterwards, so one instance can be shared by any number of threads.
+// Packets are the FORMAT_BYTES packets of HuffmanEncoder.encodeBytes: the
+// header (format byte with padding count, packed code lengths) then the code bits.
+// Working memory comes from a per-thread Scratch, so steady-state encoding and
+// decoding allocate only their results.
+public final class HuffmanCodec {
+
+    private static final int SYMBOL_COUNT = CanonicalHuffman.BYTE_ALPHABET_SIZE;
+    private static final int HEADER_SIZE = CanonicalHuffman.headerSize(SYMBOL_COUNT);
+    // Scratch buffers above this are dropped after use rather than kept per thread
+    private static final int MAX_RETAINED = 1 << 20;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final int[] lengths;
+    private final int[] codes;
+    private final HuffmanTable table;
+    private final int minLength;
+    // Template header; byte 0 gets each result's padding count
+    private final byte[] header;
+
+    private HuffmanCodec(int[] lengths) {
+        this.lengths = lengths;
+        this.codes = CanonicalHuffman.codes(lengths);
+        this.table = CanonicalHuffman.table(lengths);
+        int shortest = CanonicalHuffman.MAX_CODE_LENGTH;
+        for (int length : lengths) {
+            if (length > 0) {
+                shortest = Math.min(shortest, length);
+            }
+        }
+        this.minLength = shortest;
+        this.header = CanonicalHuffman.newPacket(CanonicalHuffman.FORMAT_BYTES, lengths, 0).toByteArray();
+    }
+
+    // lengths[b] is the code length of byte b, 0 for bytes that never occur
+    public static HuffmanCodec fromLengths(int[] lengths) {
+        if (lengths.length != SYMBOL_COUNT) {
+            throw new IllegalArgumentException("Expected " + SYMBOL_COUNT + " code lengths, got " + lengths.length);
+        }
+        for (int length : lengths) {
+            if (length < 0 || length > CanonicalHuffman.MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Unsupported code length: " + length);
+            }
+        }
+        return new HuffmanCodec(lengths.clone());
+    }
+
+    public static HuffmanCodec fromFrequencies(int[] freq) {
+        if (freq.length != SYMBOL_COUNT) {
+            throw new IllegalArgumentException("Expected " + SYMBOL_COUNT + " frequencies, got " + freq.length);
+        }
+        return new HuffmanCodec(CanonicalHuffman.codeLengths(freq, CanonicalHuffman.MAX_CODE_LENGTH));
+    }
+
+    // Code table fitted to data, which must not be empty
+    public static HuffmanCodec train(byte[] data, int offset, int length) {
+        if (length <= 0) {
+            throw new IllegalArgumentException("No data to train on");
+        }
+        int[] freq = SCRATCH.get().freq;
+        Arrays.fill(freq, 0);
+        for (int i = offset; i < offset + length; i++) {
+            freq[data[i] & 0xFF]++;
+        }
+        return new HuffmanCodec(CanonicalHuffman.codeLengths(freq, CanonicalHuffman.MAX_CODE_LENGTH));
+    }
+
+    // Code table from the header of the FORMAT_BYTES packet at packet[offset]
+    public static HuffmanCodec fromPacket(byte[] packet, int offset, int length) {
+        checkPacket(packet, offset, length);
+        return new HuffmanCodec(CanonicalHuffman.unpackLengths(packet, offset + 1, SYMBOL_COUNT));
+    }
+
+    // Packet written by any table: reads the table from the header, then the codes
+    public static byte[] decodeAnyPacket(byte[] packet, int offset, int length) {
+        return fromPacket(packet, offset, length).decodePacket(packet, offset, length);
+    }
+
+    public static final class Encoded {
+        private final byte[] header;
+        private final byte[] bytes;
+        private final int bitCount;
+
+        private Encoded(byte[] header, byte[] bytes, int bitCount) {
+            this.header = header;
+            this.bytes = bytes;
+            this.bitCount = bitCount;
+        }
+
+        // Format byte with this result's padding count, then the packed code lengths
+        public byte[] getHeader() {
+            return header;
+        }
+
+        // Code bits, MSB first, zero padded to a whole byte
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public int getBitCount() {
+            return bitCount;
+        }
+
+        public byte[] toPacket() {
+            byte[] packet = Arrays.copyOf(header, header.length + bytes.length);
+            System.arraycopy(bytes, 0, packet, header.length, bytes.length);
+            return packet;
+        }
+    }
+
+    public int codeLength(int symbol) {
+        return lengths[symbol];
+    }
+
+    public int[] getLengths() {
+        return lengths.clone();
+    }
+
+    // Code bits this table spends on data with these byte counts, Long.MAX_VALUE
+    // when a byte that occurs has no code
+    public long bitCount(int[] freq) {
+        long bits = 0;
+        for (int symbol = 0; symbol < SYMBOL_COUNT; symbol++) {
+            if (freq[symbol] > 0) {
+                if (lengths[symbol] == 0) {
+                    return Long.MAX_VALUE;
+                }
+                bits += (long) freq[symbol] * lengths[symbol];
+            }
+        }
+        return bits;
+    }
+
+    public Encoded encode(byte[] data, int offset, int length) {
+        Scratch scratch = SCRATCH.get();
+        long bitCount = encodeBits(data, offset, length, scratch);
+        byte[] bytes = Arrays.copyOf(scratch.bytes, (int) ((bitCount + 7) / 8));
+        scratch.release();
+        byte[] resultHeader = header.clone();
+        resultHeader[0] = formatByte(bitCount);
+        return new Encoded(resultHeader, bytes, (int) bitCount);
+    }
+
+    // Same bytes as encode(..).toPacket(), copied out of scratch once
+    public byte[] encodePacket(byte[] data, int offset, int length) {
+        Scratch scratch = SCRATCH.get();
+        long bitCount = encodeBits(data, offset, length, scratch);
+        int byteCount = (int) ((bitCount + 7) / 8);
+        byte[] packet = Arrays.copyOf(header, HEADER_SIZE + byteCount);
+        packet[0] = formatByte(bitCount);
+        System.arraycopy(scratch.bytes, 0, packet, HEADER_SIZE, byteCount);
+        scratch.release();
+        return packet;
+    }
+
+    // Decodes bitCount bits of codes starting at data[offset]
+    public byte[] decode(byte[] data, int offset, int bitCount) {
+        return decode(data, offset, bitCount, false);
+    }
+
+    // Decodes the whole codes among the first bitCount bits, ignoring a cut-off last one
+    public byte[] decodeAvailable(byte[] data, int offset, int bitCount) {
+        return decode(data, offset, bitCount, true);
+    }
+
+    private byte[] decode(byte[] data, int offset, int bitCount, boolean truncated) {
+        Scratch scratch = SCRATCH.get();
+        byte[] out = scratch.buffer(bitCount / minLength);
+        int count = 0;
+        int bitPos = offset * 8;
+        int endBit = bitPos + bitCount;
+        if (bitCount < 0 || endBit > data.length * 8L) {
+            throw new IllegalArgumentException("Bit count exceeds encoded data");
+        }
+        while (bitPos < endBit) {
+            int entry = table.lookup(data, bitPos);
+            int length = HuffmanTable.length(entry);
+            if (length == 0 || bitPos + length > endBit) {
+                if (truncated) {
+                    break;
+                }
+                throw new IllegalArgumentException("Incomplete code in encoded data at bit " + bitPos);
+            }
+            out[count++] = (byte) HuffmanTable.symbol(entry);
+            bitPos += length;
+        }
+        byte[] decoded = Arrays.copyOf(out, count);
+        scratch.release();
+        return decoded;
+    }
+
+    // Decodes a whole packet written with this codec's table
+    public byte[] decodePacket(byte[] packet, int offset, int length) {
+        checkPacket(packet, offset, length);
+        int bitCount = (length - HEADER_SIZE) * 8 - (packet[offset] & 0x07);
+        return decode(packet, offset + HEADER_SIZE, bitCount);
+    }
+
+    // Codes for data go into scratch.bytes; returns the number of bits written
+    private long encodeBits(byte[] data, int offset, int length, Scratch scratch) {
+        byte[] out = scratch.buffer(length);
+        long accumulator = 0;
+        int pending = 0;
+        int position = 0;
+        long bitCount = 0;
+        for (int i = offset; i < offset + length; i++) {
+            int symbol = data[i] & 0xFF;
+            int codeLength = lengths[symbol];
+            if (codeLength == 0) {
+                throw new IllegalArgumentException("Byte " + symbol + " has no code in this table");
+            }
+            accumulator = (accumulator << codeLength) | codes[symbol];
+            pending += codeLength;
+            bitCount += codeLength;
+            while (pending >= 8) {
+                pending -= 8;
+                if (position == out.length) {
+                    out = scratch.grow(position);
+                }
+                out[position++] = (byte) (accumulator >>> pending);
+            }
+        }
+        if (bitCount > Integer.MAX_VALUE - HEADER_SIZE * 8L) {
+            throw new IllegalStateException("Encoded data too large: " + bitCount + " bits");
+        }
+        if (pending > 0) {
+            if (position == out.length) {
+                out = scratch.grow(position);
+            }
+            // Unused low bits of the last byte stay zero
+            out[position] = (byte) (accumulator << (8 - pending));
+        }
+        return bitCount;
+    }
+
+    private static byte formatByte(long bitCount) {
+        return (byte) (CanonicalHuffman.FORMAT_BYTES | (int) ((8 - bitCount % 8) % 8));
+    }
+
+    private static void checkPacket(byte[] packet, int offset, int length) {
+        if (length < HEADER_SIZE || offset + length > packet.length
+                || (packet[offset] & CanonicalHuffman.FORMAT_MASK) != CanonicalHuffman.FORMAT_BYTES) {
+            throw new IllegalArgumentException("Not a byte Huffman packet");
+        }
+    }
+
+    // Per-thread working memory. Never escapes the call that borrowed it.
+    private static final class Scratch {
+        final int[] freq = new int[SYMBOL_COUNT];
+        byte[] bytes = new byte[1024];
+
+        byte[] buffer(int minSize) {
+            if (bytes.length < minSize) {
+                bytes = new byte[minSize];
+            }
+            return bytes;
+        }
+
+        byte[] grow(int used) {
+            bytes = Arrays.copyOf(bytes, Math.max(16, used * 2));
+            return bytes;
+        }
+
+        void release() {
+            if (bytes.length > MAX_RETAINED) {
+                bytes = new byte[1024];
+            }
+        }
+    }
+}
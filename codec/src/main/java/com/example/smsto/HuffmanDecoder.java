@@ -0,0 +1,245 @@
+package com.example.smsto;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+public class HuffmanDecoder {
+    private static final String TAG = "HuffmanDecoder";
+    private static final Pattern BASE64_PATTERN = Pattern.compile("^[A-Za-z0-9+/=]*$");
+    private static final Pattern BINARY_PATTERN = Pattern.compile("^[01]+$");
+    // Error messages show at most this many of the undecodable bits
+    private static final int MAX_LOGGED_BITS = 64;
+
+    public String decode(String map, byte[] encoded) {
+        if ((map == null || map.isEmpty()) && CanonicalHuffman.hasFormat(encoded, CanonicalHuffman.FORMAT_BASE64)) {
+            return decodeCanonical(encoded);
+        }
+        if (map == null || map.isEmpty() || encoded == null || encoded.length == 0) {
+            CodecLog.e(TAG, "Invalid input: map or encoded data is null/empty");
+            throw new IllegalArgumentException("Map or encoded data is null or empty");
+        }
+
+        long start = CodecLog.startTimer();
+        try {
+            Map<String, Character> codeMap = new HashMap<>();
+            int validBits = deserializeCodeMap(map, codeMap);
+            if (codeMap.isEmpty()) {
+                throw new IllegalArgumentException("Code map is empty after deserialization");
+            }
+
+            // Validate validBits against encoded length
+            int maxBits = encoded.length * 8;
+            if (validBits > maxBits) {
+                CodecLog.e(TAG, "Valid bits (" + validBits + ") exceeds encoded data length (" + maxBits + ")");
+                throw new IllegalArgumentException("Invalid bit count exceeds encoded data");
+            }
+
+            if (validBits <= 0) {
+                throw new IllegalArgumentException("No valid bits extracted from encoded data");
+            }
+
+            StringBuilder decoded = new StringBuilder();
+            HuffmanTable table = buildTable(codeMap);
+            if (table != null) {
+                decodeWithTable(table, encoded, validBits, decoded);
+            } else {
+                CodecLog.w(TAG, "Code map has codes longer than " + HuffmanTable.MAX_CODE_LENGTH + " bits, decoding bit by bit");
+                decodeBitwise(codeMap, encoded, validBits, decoded);
+            }
+
+            String result = decoded.toString();
+            if (result.isEmpty()) {
+                throw new IllegalArgumentException("Decoded result is empty");
+            }
+
+            if (!BASE64_PATTERN.matcher(result).matches()) {
+                String invalidChar = findInvalidBase64Char(result);
+                CodecLog.e(TAG, "Decoded string is not valid Base64, first invalid char: " + invalidChar);
+                throw new IllegalArgumentException("Decoded string is not valid Base64, first invalid char: " + invalidChar);
+            }
+
+            CodecLog.timing(TAG, start, "Code map decoding", encoded.length, result.length());
+            return result;
+        } catch (IllegalArgumentException e) {
+            CodecLog.e(TAG, "Decoding failed: " + e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            CodecLog.e(TAG, "Unexpected decoding error: " + e.getMessage(), e);
+            throw new IllegalArgumentException("Decoding failed: " + e.getMessage());
+        }
+    }
+
+    public String decodeCanonical(byte[] packet) {
+        int symbolCount = CanonicalHuffman.BASE64_ALPHABET.length();
+        int headerSize = CanonicalHuffman.headerSize(symbolCount);
+        if (!CanonicalHuffman.hasFormat(packet, CanonicalHuffman.FORMAT_BASE64) || packet.length <= headerSize) {
+            CodecLog.e(TAG, "Invalid input: not a canonical Huffman packet");
+            throw new IllegalArgumentException("Not a canonical Huffman packet");
+        }
+
+        long start = CodecLog.startTimer();
+        try {
+            int[] lengths = CanonicalHuffman.unpackLengths(packet, 1, symbolCount);
+            HuffmanTable table = CanonicalHuffman.table(lengths);
+            int bitPos = headerSize * 8;
+            int endBit = packet.length * 8 - (packet[0] & 0x07);
+            StringBuilder decoded = new StringBuilder((endBit - bitPos) / 6);
+            while (bitPos < endBit) {
+                int entry = table.lookup(packet, bitPos);
+                int length = HuffmanTable.length(entry);
+                if (length == 0 || bitPos + length > endBit) {
+                    throw new IllegalArgumentException("Incomplete code in encoded data at bit " + bitPos);
+                }
+                decoded.append(CanonicalHuffman.BASE64_ALPHABET.charAt(HuffmanTable.symbol(entry)));
+                bitPos += length;
+            }
+            CodecLog.timing(TAG, start, "Canonical decoding", packet.length, decoded.length());
+            return decoded.toString();
+        } catch (IllegalArgumentException e) {
+            CodecLog.e(TAG, "Decoding failed: " + e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            CodecLog.e(TAG, "Unexpected decoding error: " + e.getMessage(), e);
+            throw new IllegalArgumentException("Decoding failed: " + e.getMessage());
+        }
+    }
+
+    public byte[] decodeBytes(byte[] packet) {
+        if (!CanonicalHuffman.hasFormat(packet, CanonicalHuffman.FORMAT_BYTES)
+                || packet.length <= CanonicalHuffman.headerSize(CanonicalHuffman.BYTE_ALPHABET_SIZE)) {
+            CodecLog.e(TAG, "Invalid input: not a byte Huffman packet");
+            throw new IllegalArgumentException("Not a byte Huffman packet");
+        }
+
+        long start = CodecLog.startTimer();
+        try {
+            byte[] decoded = HuffmanCodec.decodeAnyPacket(packet, 0, packet.length);
+            CodecLog.timing(TAG, start, "Byte decoding", packet.length, decoded.length);
+            return decoded;
+        } catch (IllegalArgumentException e) {
+            CodecLog.e(TAG, "Decoding failed: " + e.getMessage(), e);
+            throw e;
+        } catch (Exception e) {
+            CodecLog.e(TAG, "Unexpected decoding error: " + e.getMessage(), e);
+            throw new IllegalArgumentException("Decoding failed: " + e.getMessage());
+        }
+    }
+
+    private int deserializeCodeMap(String map, Map<String, Character> codeMap) {
+        try {
+            String[] parts = map.split("\\|", 2);
+            if (parts.length != 2) {
+                CodecLog.e(TAG, "Invalid code map format: missing bit count");
+                throw new IllegalArgumentException("Invalid code map format");
+            }
+
+            int validBits;
+            try {
+                validBits = Integer.parseInt(parts[0]);
+            } catch (NumberFormatException e) {
+                CodecLog.e(TAG, "Invalid bit count in code map: " + parts[0]);
+                throw new IllegalArgumentException("Invalid bit count");
+            }
+
+            String[] pairs = parts[1].split("(?<!\\\\);");
+            for (String pair : pairs) {
+                if (pair.isEmpty()) continue;
+                String[] pairParts = pair.split("(?<!\\\\):", 2);
+                if (pairParts.length != 2) {
+                    CodecLog.e(TAG, "Invalid code map pair: " + pair);
+                    continue;
+                }
+                String character = decodeChar(pairParts[0]);
+                String code = pairParts[1];
+                if (character.length() != 1) {
+                    CodecLog.e(TAG, "Invalid character in code map: " + character);
+                    continue;
+                }
+                codeMap.put(code, character.charAt(0));
+            }
+            if (CodecLog.isLoggable(CodecLog.DEBUG)) {
+                CodecLog.d(TAG, "Deserialized code map with " + codeMap.size() + " entries, valid bits: " + validBits);
+            }
+            return validBits;
+        } catch (Exception e) {
+            CodecLog.e(TAG, "Failed to deserialize code map: " + e.getMessage(), e);
+            throw new IllegalArgumentException("Failed to deserialize code map: " + e.getMessage());
+        }
+    }
+
+    private HuffmanTable buildTable(Map<String, Character> codeMap) {
+        int count = 0;
+        int[] symbols = new int[codeMap.size()];
+        int[] codes = new int[codeMap.size()];
+        int[] lengths = new int[codeMap.size()];
+        for (Map.Entry<String, Character> entry : codeMap.entrySet()) {
+            String code = entry.getKey();
+            if (code.length() > HuffmanTable.MAX_CODE_LENGTH) {
+                return null;
+            }
+            if (code.isEmpty() || !BINARY_PATTERN.matcher(code).matches()) {
+                CodecLog.e(TAG, "Invalid code in code map: " + code);
+                continue;
+            }
+            symbols[count] = entry.getValue();
+            codes[count] = Integer.parseInt(code, 2);
+            lengths[count] = code.length();
+            count++;
+        }
+        return HuffmanTable.build(symbols, codes, lengths, count);
+    }
+
+    private void decodeWithTable(HuffmanTable table, byte[] encoded, int validBits, StringBuilder decoded) {
+        int bitPos = 0;
+        while (bitPos < validBits) {
+            int entry = table.lookup(encoded, bitPos);
+            int length = HuffmanTable.length(entry);
+            if (length == 0 || bitPos + length > validBits) {
+                String remaining = bitString(encoded, bitPos, Math.min(validBits, bitPos + MAX_LOGGED_BITS));
+                CodecLog.e(TAG, "Incomplete code in encoded data: " + remaining);
+                throw new IllegalArgumentException("Incomplete code in encoded data: " + remaining);
+            }
+            decoded.append((char) HuffmanTable.symbol(entry));
+            bitPos += length;
+        }
+    }
+
+    private void decodeBitwise(Map<String, Character> codeMap, byte[] encoded, int validBits, StringBuilder decoded) {
+        StringBuilder currentCode = new StringBuilder();
+        for (int i = 0; i < validBits; i++) {
+            currentCode.append((encoded[i >>> 3] & (0x80 >>> (i & 7))) != 0 ? '1' : '0');
+            Character c = codeMap.get(currentCode.toString());
+            if (c != null) {
+                decoded.append(c);
+                currentCode.setLength(0);
+            }
+        }
+        if (currentCode.length() > 0) {
+            CodecLog.e(TAG, "Incomplete code in encoded data: " + currentCode);
+            throw new IllegalArgumentException("Incomplete code in encoded data: " + currentCode);
+        }
+    }
+
+    private String bitString(byte[] bytes, int from, int to) {
+        StringBuilder bits = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            bits.append((bytes[i >>> 3] & (0x80 >>> (i & 7))) != 0 ? '1' : '0');
+        }
+        return bits.toString();
+    }
+
+    private String decodeChar(String encoded) {
+        return encoded.replace("\\:", ":").replace("\\;", ";").replace("\\|", "|").replace("\\\\", "\\");
+    }
+
+    private String findInvalidBase64Char(String str) {
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '+' || c == '/' || c == '=')) {
+                return "char '" + c + "' at position " + i;
+            }
+        }
+        return "unknown";
+    }
+}
\ No newline at end of file
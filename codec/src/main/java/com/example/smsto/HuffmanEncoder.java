@@ -0,0 +1,212 @@
+package com.example.smsto;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.regex.Pattern;
+
+// Holds the code map of the last encode() call, so an instance is not
+// thread-safe; share a HuffmanCodec instead where byte coding is enough.
+public class HuffmanEncoder {
+
+    private static final String TAG = "HuffmanEncoder";
+    private static final Pattern BASE64_PATTERN = Pattern.compile("^[A-Za-z0-9+/=]*$");
+    private static final int ALPHABET_SIZE = 128;
+    private Map<Character, String> codeMap = new HashMap<>();
+    private int validBits;
+
+    public byte[] encode(String input) {
+        if (input == null || input.isEmpty()) {
+            CodecLog.e(TAG, "Input string is null or empty");
+            return null;
+        }
+        if (!BASE64_PATTERN.matcher(input).matches()) {
+            CodecLog.e(TAG, "Input is not valid Base64: " + input.substring(0, Math.min(100, input.length())));
+            return null;
+        }
+
+        long start = CodecLog.startTimer();
+        try {
+            codeMap.clear();
+            validBits = 0;
+            int length = input.length();
+            int[] freq = new int[ALPHABET_SIZE];
+            for (int i = 0; i < length; i++) {
+                freq[input.charAt(i)]++;
+            }
+            buildHuffmanTree(freq);
+
+            // Turn the code table into code words + lengths so encoding never touches strings
+            long[] codeWords = new long[ALPHABET_SIZE];
+            int[] codeLengths = new int[ALPHABET_SIZE];
+            long totalBits = 0;
+            for (Map.Entry<Character, String> entry : codeMap.entrySet()) {
+                char c = entry.getKey();
+                String code = entry.getValue();
+                codeWords[c] = Long.parseUnsignedLong(code, 2);
+                codeLengths[c] = code.length();
+                totalBits += (long) freq[c] * code.length();
+            }
+            if (totalBits > Integer.MAX_VALUE) {
+                throw new IllegalStateException("Encoded data too large: " + totalBits + " bits");
+            }
+
+            BitWriter writer = new BitWriter((int) ((totalBits + 7) / 8));
+            for (int i = 0; i < length; i++) {
+                char c = input.charAt(i);
+                writer.write(codeWords[c], codeLengths[c]);
+            }
+            validBits = writer.bitCount();
+            byte[] bytes = writer.toByteArray();
+            CodecLog.timing(TAG, start, "Code map encoding", length, bytes.length);
+            return bytes;
+        } catch (Exception e) {
+            CodecLog.e(TAG, "Huffman encoding failed: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    // Canonical mode: one header byte, the packed code lengths of the 65-char Base64
+    // alphabet, then the code bits. Leaves the legacy code map state untouched.
+    public byte[] encodeCanonical(String input) {
+        if (input == null || input.isEmpty()) {
+            CodecLog.e(TAG, "Input string is null or empty");
+            return null;
+        }
+        if (!BASE64_PATTERN.matcher(input).matches()) {
+            CodecLog.e(TAG, "Input is not valid Base64: " + input.substring(0, Math.min(100, input.length())));
+            return null;
+        }
+
+        long start = CodecLog.startTimer();
+        try {
+            int length = input.length();
+            int symbolCount = CanonicalHuffman.BASE64_ALPHABET.length();
+            int[] freq = new int[symbolCount];
+            for (int i = 0; i < length; i++) {
+                freq[CanonicalHuffman.base64Index(input.charAt(i))]++;
+            }
+            int[] lengths = CanonicalHuffman.codeLengths(freq, CanonicalHuffman.MAX_CODE_LENGTH);
+            int[] codes = CanonicalHuffman.codes(lengths);
+            long totalBits = 0;
+            for (int symbol = 0; symbol < symbolCount; symbol++) {
+                totalBits += (long) freq[symbol] * lengths[symbol];
+            }
+            BitWriter writer = CanonicalHuffman.newPacket(CanonicalHuffman.FORMAT_BASE64, lengths, totalBits);
+            for (int i = 0; i < length; i++) {
+                int symbol = CanonicalHuffman.base64Index(input.charAt(i));
+                writer.write(codes[symbol], lengths[symbol]);
+            }
+            byte[] packet = writer.toByteArray();
+            CodecLog.timing(TAG, start, "Canonical encoding", length, packet.length);
+            return packet;
+        } catch (Exception e) {
+            CodecLog.e(TAG, "Canonical Huffman encoding failed: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    // Canonical coding over the 256 byte values, for binary data such as JPEG bytes
+    public byte[] encodeBytes(byte[] input) {
+        if (input == null || input.length == 0) {
+            CodecLog.e(TAG, "Input bytes are null or empty");
+            return null;
+        }
+
+        long start = CodecLog.startTimer();
+        try {
+            byte[] packet = HuffmanCodec.train(input, 0, input.length).encodePacket(input, 0, input.length);
+            CodecLog.timing(TAG, start, "Byte encoding", input.length, packet.length);
+            return packet;
+        } catch (Exception e) {
+            CodecLog.e(TAG, "Byte Huffman encoding failed: " + e.getMessage(), e);
+            return null;
+        }
+    }
+
+    public String serializeCodeMap() {
+        if (codeMap.isEmpty()) {
+            CodecLog.e(TAG, "Code map is empty");
+            return "";
+        }
+
+        try {
+            StringBuilder mapBuilder = new StringBuilder();
+            mapBuilder.append(validBits).append("|");
+            for (Map.Entry<Character, String> entry : codeMap.entrySet()) {
+                mapBuilder.append(encodeChar(entry.getKey())).append(":").append(entry.getValue()).append(";");
+            }
+            return mapBuilder.toString();
+        } catch (Exception e) {
+            CodecLog.e(TAG, "Failed to serialize code map: " + e.getMessage(), e);
+            return "";
+        }
+    }
+
+    private void buildHuffmanTree(int[] freq) {
+        PriorityQueue<Node> pq = new PriorityQueue<>((a, b) -> a.freq - b.freq);
+        for (int c = 0; c < freq.length; c++) {
+            if (freq[c] > 0) {
+                pq.offer(new Node((char) c, freq[c]));
+            }
+        }
+
+        if (pq.isEmpty()) {
+            CodecLog.e(TAG, "Frequency map is empty");
+            return;
+        }
+        if (pq.size() == 1) {
+            // A lone symbol still needs a one-bit code
+            codeMap.put(pq.poll().character, "0");
+            return;
+        }
+
+        while (pq.size() > 1) {
+            Node left = pq.poll();
+            Node right = pq.poll();
+            Node parent = new Node('\0', left.freq + right.freq);
+            parent.left = left;
+            parent.right = right;
+            pq.offer(parent);
+        }
+
+        if (!pq.isEmpty()) {
+            generateCodes(pq.poll(), "");
+        }
+    }
+
+    private void generateCodes(Node node, String code) {
+        if (node == null) {
+            return;
+        }
+        if (node.character != '\0') {
+            codeMap.put(node.character, code);
+        }
+        generateCodes(node.left, code + "0");
+        generateCodes(node.right, code + "1");
+    }
+
+    private String encodeChar(char c) {
+        if (c == ':') {
+            return "\\:";
+        } else if (c == ';') {
+            return "\\;";
+        } else if (c == '|') {
+            return "\\|";
+        } else if (c == '\\') {
+            return "\\\\";
+        }
+        return String.valueOf(c);
+    }
+
+    private static class Node {
+        char character;
+        int freq;
+        Node left, right;
+
+        Node(char character, int freq) {
+            this.character = character;
+            this.freq = freq;
+        }
+    }
+}
\ No newline at end of file
@@ -0,0 +1,39 @@
+package com.example.smsto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Order-0 canonical Huffman over the raw bytes, one table fitted per payload
+public class HuffmanPayloadCodec implements PayloadCodec {
+
+    private final int id;
+
+    HuffmanPayloadCodec(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return "Huffman";
+    }
+
+    @Override
+    public OutputStream encoder(OutputStream out) {
+        return PayloadCodecs.blockEncoder(out, (data, length) -> {
+            if (length == 0) {
+                throw new IOException("Nothing to Huffman encode");
+            }
+            return HuffmanCodec.train(data, 0, length).encodePacket(data, 0, length);
+        });
+    }
+
+    @Override
+    public byte[] decode(byte[] data, int offset, int length) {
+        return HuffmanCodec.decodeAnyPacket(data, offset, length);
+    }
+}
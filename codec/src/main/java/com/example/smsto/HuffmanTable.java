@@ -0,0 +1,111 @@
+package com.example.smsto;
+
+import java.util.Arrays;
+
+// Multi-bit lookup table for prefix codes: a primary table indexed by the next
+// PRIMARY_BITS bits, with overflow subtables for longer codes.
+public final class HuffmanTable {
+
+    public static final int MAX_CODE_LENGTH = 20;
+    private static final int PRIMARY_BITS = 9;
+    private static final int LINK = 0x80000000;
+
+    private final int[] entries;
+    private final int primaryBits;
+
+    private HuffmanTable(int[] entries, int primaryBits) {
+        this.entries = entries;
+        this.primaryBits = primaryBits;
+    }
+
+    // codes[i] holds the lengths[i] low bits of the code for symbols[i], MSB first.
+    // Shorter codes win where one code is a prefix of another, like a bit-by-bit matcher.
+    public static HuffmanTable build(int[] symbols, int[] codes, int[] lengths, int count) {
+        int maxLength = 0;
+        for (int i = 0; i < count; i++) {
+            if (lengths[i] < 1 || lengths[i] > MAX_CODE_LENGTH) {
+                throw new IllegalArgumentException("Unsupported code length: " + lengths[i]);
+            }
+            maxLength = Math.max(maxLength, lengths[i]);
+        }
+        int primaryBits = Math.max(1, Math.min(maxLength, PRIMARY_BITS));
+        int primarySize = 1 << primaryBits;
+
+        int[] subBits = new int[primarySize];
+        for (int i = 0; i < count; i++) {
+            int extra = lengths[i] - primaryBits;
+            if (extra > 0) {
+                int prefix = codes[i] >>> extra;
+                subBits[prefix] = Math.max(subBits[prefix], extra);
+            }
+        }
+        int size = primarySize;
+        for (int bits : subBits) {
+            if (bits > 0) {
+                size += 1 << bits;
+            }
+        }
+
+        int[] entries = new int[size];
+        int[] subOffset = new int[primarySize];
+        int next = primarySize;
+        for (int prefix = 0; prefix < primarySize; prefix++) {
+            if (subBits[prefix] > 0) {
+                subOffset[prefix] = next;
+                entries[prefix] = LINK | (next << 8) | subBits[prefix];
+                next += 1 << subBits[prefix];
+            }
+        }
+
+        Integer[] order = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> lengths[b] - lengths[a]);
+        for (int i : order) {
+            int length = lengths[i];
+            int entry = (symbols[i] << 8) | length;
+            int extra = length - primaryBits;
+            if (extra <= 0) {
+                int start = codes[i] << -extra;
+                Arrays.fill(entries, start, start + (1 << -extra), entry);
+            } else {
+                int prefix = codes[i] >>> extra;
+                int fill = subBits[prefix] - extra;
+                int start = subOffset[prefix] + ((codes[i] & ((1 << extra) - 1)) << fill);
+                Arrays.fill(entries, start, start + (1 << fill), entry);
+            }
+        }
+        return new HuffmanTable(entries, primaryBits);
+    }
+
+    // Returns the entry for the code starting at bitPos, or 0 when no code matches
+    public int lookup(byte[] data, int bitPos) {
+        int entry = entries[peek(data, bitPos, primaryBits)];
+        if (entry < 0) {
+            int offset = (entry & ~LINK) >>> 8;
+            entry = entries[offset + peek(data, bitPos + primaryBits, entry & 0xFF)];
+        }
+        return entry;
+    }
+
+    public static int symbol(int entry) {
+        return entry >>> 8;
+    }
+
+    public static int length(int entry) {
+        return entry & 0xFF;
+    }
+
+    private static int peek(byte[] data, int bitPos, int count) {
+        int index = bitPos >>> 3;
+        int window = 0;
+        for (int i = 0; i < 4; i++) {
+            window <<= 8;
+            if (index + i < data.length) {
+                window |= data[index + i] & 0xFF;
+            }
+        }
+        return (window >>> (32 - (bitPos & 7) - count)) & ((1 << count) - 1);
+    }
+}
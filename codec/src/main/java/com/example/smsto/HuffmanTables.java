@@ -0,0 +1,59 @@
+package com.example.smsto;
+
+// Pretrained static code tables for StaticHuffmanCodec, so a message needs
+// neither a per-message tree build nor 129 bytes of code lengths on the wire.
+// Each table gives every byte a code. Regenerate with :codec:trainHuffmanTables;
+// IDs go on the wire, so a table's lengths must never change once shipped.
+public final class HuffmanTables {
+
+    // No static table: the payload carries its own code lengths
+    public static final int ADAPTIVE = 0;
+    public static final int JPEG = 1;
+    // Table IDs share a byte with the 3-bit padding count
+    public static final int MAX_ID = 31;
+
+    // Code length of each byte value as one hex digit, byte 0x00 first.
+    // Trained on 64 baseline JPEGs at quality 30 between 120x90 and 200x200:
+    // 97.7% of the input where per-message tables come to 102.5%.
+    private static final String JPEG_LENGTHS =
+            "5677778888899999978978888888898899888888778898999888888888899888"
+            + "9888978887799888877887888879889998888988888899899888888888899898"
+            + "9988988899798988988888888879998888778588888888999888888888899998"
+            + "9999888888899899988888898889899999888888888999999988888898888887";
+
+    private static final HuffmanCodec JPEG_TABLE = HuffmanCodec.fromLengths(parseLengths(JPEG_LENGTHS));
+
+    private HuffmanTables() {
+    }
+
+    public static HuffmanCodec get(int id) {
+        if (id == JPEG) {
+            return JPEG_TABLE;
+        }
+        throw new IllegalArgumentException("Unknown Huffman table: " + id);
+    }
+
+    // Every static table, for encoders to pick the cheapest from
+    static int[] staticIds() {
+        return new int[]{JPEG};
+    }
+
+    static String formatLengths(int[] lengths) {
+        StringBuilder sb = new StringBuilder(lengths.length);
+        for (int length : lengths) {
+            sb.append(Character.forDigit(length, 16));
+        }
+        return sb.toString();
+    }
+
+    static int[] parseLengths(String hex) {
+        if (hex.length() != CanonicalHuffman.BYTE_ALPHABET_SIZE) {
+            throw new IllegalArgumentException("Expected " + CanonicalHuffman.BYTE_ALPHABET_SIZE + " code lengths, got " + hex.length());
+        }
+        int[] lengths = new int[hex.length()];
+        for (int i = 0; i < lengths.length; i++) {
+            lengths[i] = Character.digit(hex.charAt(i), 16);
+        }
+        return lengths;
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.smsto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.ZipException;
+
+// Pure-Java LZ77 with the literals and the match sequences split into two
+// streams, each Huffman coded with its own statistics (as Zstandard does):
+//   <literal packet length: varint> <literal packet> <sequence packet>
+// A sequence is <literal run: varint> <match length - MIN_MATCH: varint> <offset - 1: 2 bytes>;
+// the last one carries only its literal run.
+public class LzHuffmanCodec implements PayloadCodec {
+
+    private static final int MIN_MATCH = 4;
+    private static final int WINDOW = 1 << 16;
+    private static final int HASH_BITS = 14;
+    private static final int MAX_CHAIN = 64;
+
+    private final int id;
+
+    LzHuffmanCodec(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return "LZ + Huffman";
+    }
+
+    @Override
+    public OutputStream encoder(OutputStream out) {
+        return PayloadCodecs.blockEncoder(out, LzHuffmanCodec::encode);
+    }
+
+    static byte[] encode(byte[] data, int length) {
+        ByteArrayOutputStream literals = new ByteArrayOutputStream(length);
+        ByteArrayOutputStream sequences = new ByteArrayOutputStream(length / 4 + 16);
+        int[] head = new int[1 << HASH_BITS];
+        Arrays.fill(head, -1);
+        int[] prev = new int[Math.max(1, length)];
+
+        int anchor = 0;
+        int pos = 0;
+        while (pos + MIN_MATCH <= length) {
+            int bestLength = 0;
+            int bestOffset = 0;
+            int chain = 0;
+            for (int candidate = head[hash(data, pos)]; candidate >= 0 && pos - candidate <= WINDOW && chain < MAX_CHAIN;
+                 candidate = prev[candidate], chain++) {
+                int matchLength = 0;
+                while (pos + matchLength < length && data[candidate + matchLength] == data[pos + matchLength]) {
+                    matchLength++;
+                }
+                if (matchLength > bestLength) {
+                    bestLength = matchLength;
+                    bestOffset = pos - candidate;
+                }
+            }
+            if (bestLength < MIN_MATCH) {
+                insert(data, pos, head, prev);
+                pos++;
+                continue;
+            }
+            literals.write(data, anchor, pos - anchor);
+            writeVarint(sequences, pos - anchor);
+            writeVarint(sequences, bestLength - MIN_MATCH);
+            sequences.write((bestOffset - 1) >>> 8);
+            sequences.write(bestOffset - 1);
+            int end = pos + bestLength;
+            for (; pos < end && pos + MIN_MATCH <= length; pos++) {
+                insert(data, pos, head, prev);
+            }
+            pos = end;
+            anchor = pos;
+        }
+        literals.write(data, anchor, length - anchor);
+        writeVarint(sequences, length - anchor);
+
+        byte[] literalPacket = literals.size() > 0 ? huffmanPacket(literals.toByteArray()) : new byte[0];
+        byte[] sequencePacket = huffmanPacket(sequences.toByteArray());
+        ByteArrayOutputStream out = new ByteArrayOutputStream(literalPacket.length + sequencePacket.length + 4);
+        writeVarint(out, literalPacket.length);
+        out.write(literalPacket, 0, literalPacket.length);
+        out.write(sequencePacket, 0, sequencePacket.length);
+        return out.toByteArray();
+    }
+
+    private static byte[] huffmanPacket(byte[] stream) {
+        return HuffmanCodec.train(stream, 0, stream.length).encodePacket(stream, 0, stream.length);
+    }
+
+    @Override
+    public byte[] decode(byte[] data, int offset, int length) throws IOException {
+        int end = offset + length;
+        int[] cursor = {offset};
+        int literalPacketLength = readVarint(data, cursor, end);
+        if (literalPacketLength < 0 || literalPacketLength >= end - cursor[0]) {
+            throw new ZipException("Corrupt LZ stream");
+        }
+        int sequenceStart = cursor[0] + literalPacketLength;
+        byte[] literals;
+        byte[] sequences;
+        try {
+            literals = literalPacketLength > 0
+                    ? HuffmanCodec.decodeAnyPacket(data, cursor[0], literalPacketLength)
+                    : new byte[0];
+            sequences = HuffmanCodec.decodeAnyPacket(data, sequenceStart, end - sequenceStart);
+        } catch (IllegalArgumentException e) {
+            throw new ZipException("Corrupt LZ stream: " + e.getMessage());
+        }
+
+        byte[] out = new byte[Math.max(64, literals.length * 2)];
+        int size = 0;
+        int literalPos = 0;
+        int[] seq = {0};
+        while (true) {
+            int run = readVarint(sequences, seq, sequences.length);
+            if (run < 0 || literalPos + run > literals.length) {
+                throw new ZipException("Corrupt LZ stream");
+            }
+            out = ensureCapacity(out, size + run);
+            System.arraycopy(literals, literalPos, out, size, run);
+            literalPos += run;
+            size += run;
+            if (seq[0] == sequences.length) {
+                break;
+            }
+            int matchLength = readVarint(sequences, seq, sequences.length) + MIN_MATCH;
+            if (seq[0] + 2 > sequences.length) {
+                throw new ZipException("Corrupt LZ stream");
+            }
+            int distance = (((sequences[seq[0]] & 0xFF) << 8) | (sequences[seq[0] + 1] & 0xFF)) + 1;
+            seq[0] += 2;
+            if (matchLength < MIN_MATCH || distance > size) {
+                throw new ZipException("Corrupt LZ stream");
+            }
+            if (matchLength > PayloadCodecs.MAX_DECODED_SIZE - size) {
+                throw new ZipException("Payload decodes to more than " + PayloadCodecs.MAX_DECODED_SIZE + " bytes");
+            }
+            out = ensureCapacity(out, size + matchLength);
+            // Byte by byte: a match may overlap the bytes it produces
+            for (int i = 0; i < matchLength; i++, size++) {
+                out[size] = out[size - distance];
+            }
+        }
+        return Arrays.copyOf(out, size);
+    }
+
+    private static int hash(byte[] data, int pos) {
+        int word = (data[pos] & 0xFF) | (data[pos + 1] & 0xFF) << 8 | (data[pos + 2] & 0xFF) << 16 | (data[pos + 3] & 0xFF) << 24;
+        return (word * 0x9E3779B1) >>> (32 - HASH_BITS);
+    }
+
+    private static void insert(byte[] data, int pos, int[] head, int[] prev) {
+        int h = hash(data, pos);
+        prev[pos] = head[h];
+        head[h] = pos;
+    }
+
+    private static byte[] ensureCapacity(byte[] buffer, int needed) {
+        return needed <= buffer.length ? buffer : Arrays.copyOf(buffer, Math.max(needed, buffer.length * 2));
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while (value >= 0x80) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    // Returns -1 on a truncated or oversized varint
+    private static int readVarint(byte[] data, int[] cursor, int end) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            if (cursor[0] >= end) {
+                return -1;
+            }
+            int b = data[cursor[0]++];
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.smsto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Stage boundary of a streaming encode: counts the bytes passed downstream and
+// meters the time spent in the downstream calls. Callers write in chunks here,
+// so reading the clock per call stays cheap.
+final class MeteredOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final PipelineMetrics.Meter meter;
+    private long count;
+
+    MeteredOutputStream(OutputStream out, PipelineMetrics.Meter meter) {
+        this.out = out;
+        this.meter = meter;
+    }
+
+    PipelineMetrics.Meter getMeter() {
+        return meter;
+    }
+
+    long getCount() {
+        return count;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        meter.begin();
+        try {
+            out.write(b);
+        } finally {
+            meter.end();
+        }
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        meter.begin();
+        try {
+            out.write(b, off, len);
+        } finally {
+            meter.end();
+        }
+        count += len;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        meter.begin();
+        try {
+            out.flush();
+        } finally {
+            meter.end();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        meter.begin();
+        try {
+            out.close();
+        } finally {
+            meter.end();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.smsto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Compression stage of the payload frame, identified on the wire by id().
+// Anything a codec needs besides its ID (e.g. a dictionary) it writes itself.
+public interface PayloadCodec {
+
+    int id();
+
+    String name();
+
+    // Bytes written to the returned stream come out compressed on out; closing it closes out
+    OutputStream encoder(OutputStream out) throws IOException;
+
+    byte[] decode(byte[] data, int offset, int length) throws IOException;
+
+    // Image bytes recoverable from the start of a truncated payload, for previews;
+    // null when the codec needs all of its input
+    default byte[] decodePrefix(byte[] data, int offset, int length) {
+        return null;
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.smsto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Registry of payload codecs. IDs 0x01 and 0x02 are the methods frames used
+// before codecs were pluggable, so older payloads keep decoding.
+public final class PayloadCodecs {
+
+    public static final PayloadCodec DEFLATE = new DeflateCodec(0x01, "Deflate", 9, DeflateDictionaries.NONE);
+    public static final PayloadCodec DEFLATE_JPEG = new DeflateCodec(0x02, "Deflate + JPEG dictionary", 9, DeflateDictionaries.JPEG_HEADERS);
+    public static final PayloadCodec GZIP = new GzipCodec(0x20);
+    public static final PayloadCodec HUFFMAN = new HuffmanPayloadCodec(0x30);
+    public static final PayloadCodec HUFFMAN_STATIC = new StaticHuffmanCodec(0x31);
+    public static final PayloadCodec LZ_HUFFMAN = new LzHuffmanCodec(0x40);
+
+    // Received payloads are untrusted, and a few hundred bytes of deflate can
+    // expand to hundreds of MB. Images the app sends are at most 200x200 px,
+    // far below this, so anything that decodes larger is rejected.
+    public static final int MAX_DECODED_SIZE = 4 * 1024 * 1024;
+
+    // Raw deflate at levels 1-9 as IDs 0x11-0x19
+    private static final PayloadCodec[] DEFLATE_LEVELS = new PayloadCodec[9];
+
+    static {
+        for (int level = 1; level <= 9; level++) {
+            DEFLATE_LEVELS[level - 1] = new DeflateCodec(0x10 + level, "Deflate " + level, level, DeflateDictionaries.NONE);
+        }
+    }
+
+    private PayloadCodecs() {
+    }
+
+    public static PayloadCodec deflate(int level) {
+        if (level < 1 || level > 9) {
+            throw new IllegalArgumentException("Deflate level out of range: " + level);
+        }
+        return DEFLATE_LEVELS[level - 1];
+    }
+
+    // The codec to use when the deployment doesn't pick one
+    public static PayloadCodec defaultFor(int imageCodec) {
+        return imageCodec == PayloadFormat.IMAGE_CODEC_JPEG ? DEFLATE_JPEG : DEFLATE;
+    }
+
+    public static PayloadCodec forId(int id) {
+        if (id == DEFLATE.id()) {
+            return DEFLATE;
+        } else if (id == DEFLATE_JPEG.id()) {
+            return DEFLATE_JPEG;
+        } else if (id == GZIP.id()) {
+            return GZIP;
+        } else if (id == HUFFMAN.id()) {
+            return HUFFMAN;
+        } else if (id == HUFFMAN_STATIC.id()) {
+            return HUFFMAN_STATIC;
+        } else if (id == LZ_HUFFMAN.id()) {
+            return LZ_HUFFMAN;
+        } else if (id > 0x10 && id <= 0x19) {
+            return DEFLATE_LEVELS[id - 0x11];
+        }
+        throw new IllegalArgumentException("Unsupported compression method: " + id);
+    }
+
+    interface BlockEncoder {
+        byte[] encode(byte[] data, int length) throws IOException;
+    }
+
+    // For codecs that need the whole input: collects it and writes the encoded block on close
+    static OutputStream blockEncoder(OutputStream out, BlockEncoder encoder) {
+        return new ByteArrayOutputStream(4096) {
+            private boolean closed;
+
+            @Override
+            public void close() throws IOException {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                try (OutputStream target = out) {
+                    target.write(encoder.encode(buf, count));
+                }
+            }
+        };
+    }
+}
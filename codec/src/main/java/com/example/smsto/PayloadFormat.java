@@ -0,0 +1,136 @@
+package com.example.smsto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+// Wire format of an encoded image:
+//   '#' <text codec> text(<version> <image codec> <payload codec> <compressed image bytes>)
+// or the same binary frame spread over FEC segments (see FecSegments).
+// Version 2 frames have no image codec byte and are always JPEG.
+// Legacy payloads (Base64 of GZIP of Base64 JPEG) never start with '#'.
+public final class PayloadFormat {
+
+    public static final char MARKER = '#';
+    public static final int VERSION = 3;
+    public static final int VERSION_JPEG_ONLY = 2;
+    public static final int IMAGE_CODEC_JPEG = 1;
+    public static final int IMAGE_CODEC_WEBP = 2;
+    public static final int IMAGE_CODEC_AVIF = 3;
+
+    public static final class Decoded {
+        private final int imageCodec;
+        private final byte[] image;
+
+        Decoded(int imageCodec, byte[] image) {
+            this.imageCodec = imageCodec;
+            this.image = image;
+        }
+
+        public int getImageCodec() {
+            return imageCodec;
+        }
+
+        public byte[] getImage() {
+            return image;
+        }
+    }
+
+    private PayloadFormat() {
+    }
+
+    public static boolean isLegacy(String text) {
+        return text == null || text.isEmpty() || text.charAt(0) != MARKER;
+    }
+
+    // Writes an already built frame as payload text
+    public static void encodeFrame(Writer sink, TextCodec codec, byte[] frame, int length) throws IOException {
+        try (OutputStream text = openTextEncoder(sink, codec)) {
+            text.write(frame, 0, length);
+        }
+    }
+
+    // Returns the stream frame bytes are written to as payload text; closing it closes sink
+    public static OutputStream openTextEncoder(Writer sink, TextCodec codec) throws IOException {
+        sink.write(MARKER);
+        sink.write(codec.id());
+        return codec.encoder(sink);
+    }
+
+    // Binary frame only, for callers that do their own text encoding
+    public static OutputStream openFrameEncoder(OutputStream out, int imageCodec, PayloadCodec payloadCodec) throws IOException {
+        out.write(VERSION);
+        out.write(imageCodec);
+        out.write(payloadCodec.id());
+        return payloadCodec.encoder(out);
+    }
+
+    public static Decoded decode(String text) throws IOException {
+        return decodeFrame(decodeText(text));
+    }
+
+    // Binary frame of a versioned payload, still payload-compressed
+    public static byte[] decodeText(String text) {
+        if (isLegacy(text) || text.length() < 2) {
+            throw new IllegalArgumentException("Not a versioned payload");
+        }
+        return TextCodecs.forId(text.charAt(1)).decode(text.substring(2));
+    }
+
+    // Reassembled segment bodies of either kind
+    public static Decoded decodeSegments(char kind, String[] bodies) throws IOException {
+        if (kind == SmsSegment.KIND_FEC) {
+            return decodeFrame(FecSegments.decode(bodies));
+        }
+        return decode(String.join("", bodies));
+    }
+
+    // Image bytes so far from segments still arriving, null while there is nothing
+    // to show or the payload codec can't decode a partial stream
+    public static Decoded decodeSegmentsPrefix(char kind, String[] bodies) {
+        byte[] frame;
+        if (kind == SmsSegment.KIND_FEC) {
+            frame = FecSegments.decodePrefix(bodies);
+        } else {
+            StringBuilder text = new StringBuilder();
+            for (String body : bodies) {
+                if (body == null) {
+                    break;
+                }
+                text.append(body);
+            }
+            if (text.length() < 2 || text.charAt(0) != MARKER) {
+                return null;
+            }
+            frame = TextCodecs.forId(text.charAt(1)).decodePrefix(text.substring(2));
+        }
+        return decodeFramePrefix(frame);
+    }
+
+    public static Decoded decodeFramePrefix(byte[] frame) {
+        if (frame.length < 4 || frame[0] != VERSION) {
+            return null;
+        }
+        int imageCodec = frame[1] & 0xFF;
+        byte[] image = PayloadCodecs.forId(frame[2] & 0xFF).decodePrefix(frame, 3, frame.length - 3);
+        return image == null || image.length == 0 ? null : new Decoded(imageCodec, image);
+    }
+
+    public static Decoded decodeFrame(byte[] frame) throws IOException {
+        if (frame.length < 3) {
+            throw new IllegalArgumentException("Payload is truncated");
+        }
+        int offset = 1;
+        int imageCodec = IMAGE_CODEC_JPEG;
+        if (frame[0] == VERSION) {
+            imageCodec = frame[offset++] & 0xFF;
+        } else if (frame[0] != VERSION_JPEG_ONLY) {
+            throw new IllegalArgumentException("Unsupported payload version: " + frame[0]);
+        }
+        if (frame.length < offset + 2) {
+            throw new IllegalArgumentException("Payload is truncated");
+        }
+        PayloadCodec payloadCodec = PayloadCodecs.forId(frame[offset++] & 0xFF);
+        return new Decoded(imageCodec, payloadCodec.decode(frame, offset, frame.length - offset));
+    }
+}
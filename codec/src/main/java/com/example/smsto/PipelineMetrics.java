@@ -0,0 +1,326 @@
+package com.example.smsto;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Wall time, allocated bytes and output size of each stage of an encode or
+// decode run. A run's stages are recorded on one thread through a Recorder and
+// handed to the installed Listener when the run finishes; failed or cancelled
+// runs are simply never finished. Nothing is measured until a listener is set.
+//
+// Allocations come from the host's AllocationCounter, since the codec module
+// has no portable way to read them. Without one they are reported as unknown.
+// Reading the counter may itself allocate; that cost is measured once when the
+// counter is installed and taken off every reading after the first.
+public final class PipelineMetrics {
+
+    public static final long UNKNOWN = -1;
+    public static final String CSV_HEADER = "run_id,started_at,run,stage,wall_us,allocated_bytes,output_bytes";
+
+    public enum Stage {
+        RESIZE,
+        IMAGE_COMPRESS,
+        // Resize and compress trials until the payload fits the segment budget
+        BUDGET_SEARCH,
+        PAYLOAD_COMPRESS,
+        TEXT_ENCODE,
+        // Text encoding, parity and splitting in one, for FEC messages
+        FEC_ENCODE,
+        SPLIT,
+        CACHE_LOOKUP,
+        TEXT_DECODE,
+        FEC_DECODE,
+        PAYLOAD_DECOMPRESS,
+        IMAGE_DECODE,
+        CACHE_STORE;
+
+        public String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    public interface Listener {
+        // Called on the thread that ran the pipeline
+        void onRun(Run run);
+    }
+
+    public interface AllocationCounter {
+        // Bytes allocated so far, by this thread or the whole process; UNKNOWN if unavailable
+        long allocatedBytes();
+    }
+
+    public static final class StageMetric {
+        private final Stage stage;
+        private final long wallNanos;
+        private final long allocatedBytes;
+        private final long outputBytes;
+
+        StageMetric(Stage stage, long wallNanos, long allocatedBytes, long outputBytes) {
+            this.stage = stage;
+            this.wallNanos = wallNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.outputBytes = outputBytes;
+        }
+
+        public Stage getStage() {
+            return stage;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        // UNKNOWN without an allocation counter
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        // Bytes, or characters for text stages, that the stage handed on
+        public long getOutputBytes() {
+            return outputBytes;
+        }
+    }
+
+    public static final class Run {
+        private final long id;
+        private final String name;
+        private final long startedAt;
+        private final List<StageMetric> stages;
+
+        Run(long id, String name, long startedAt, List<StageMetric> stages) {
+            this.id = id;
+            this.name = name;
+            this.startedAt = startedAt;
+            this.stages = Collections.unmodifiableList(stages);
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        // Epoch milliseconds
+        public long getStartedAt() {
+            return startedAt;
+        }
+
+        public List<StageMetric> getStages() {
+            return stages;
+        }
+
+        public long getWallNanos() {
+            long total = 0;
+            for (StageMetric stage : stages) {
+                total += stage.wallNanos;
+            }
+            return total;
+        }
+    }
+
+    // Time and allocations inside the calls it brackets, summed over a run, for
+    // stages that interleave with their neighbours in a streaming pipeline.
+    // Does nothing for a disabled recorder.
+    static final class Meter {
+        private final boolean enabled;
+        private final AllocationCounter counter;
+        private long nanos;
+        private long allocated;
+        private long startNanos;
+        private long startAllocated;
+
+        Meter(boolean enabled, AllocationCounter counter) {
+            this.enabled = enabled;
+            this.counter = counter;
+            this.allocated = counter != null ? 0 : UNKNOWN;
+        }
+
+        void begin() {
+            if (!enabled) {
+                return;
+            }
+            if (allocated != UNKNOWN) {
+                startAllocated = counter.allocatedBytes();
+            }
+            startNanos = System.nanoTime();
+        }
+
+        void end() {
+            if (!enabled) {
+                return;
+            }
+            nanos += System.nanoTime() - startNanos;
+            if (allocated != UNKNOWN) {
+                allocated = plus(allocated, minus(counter.allocatedBytes(), startAllocated));
+            }
+        }
+    }
+
+    // Times consecutive stages: each record() covers the work since the previous
+    // record() or mark(). Not thread-safe; one per run.
+    public static final class Recorder {
+        private final String name;
+        private final Listener listener;
+        private final AllocationCounter counter;
+        private final long startedAt;
+        private final List<StageMetric> stages = new ArrayList<>();
+        private long markNanos;
+        private long markAllocated;
+
+        private Recorder(String name, Listener listener, AllocationCounter counter) {
+            this.name = name;
+            this.listener = listener;
+            this.counter = counter;
+            this.startedAt = listener != null ? System.currentTimeMillis() : 0;
+            mark();
+        }
+
+        public boolean isEnabled() {
+            return listener != null;
+        }
+
+        // Starts the next stage here, leaving the time since the last stage unrecorded
+        public void mark() {
+            if (listener == null) {
+                return;
+            }
+            markAllocated = counter != null ? counter.allocatedBytes() : UNKNOWN;
+            markNanos = System.nanoTime();
+        }
+
+        public void record(Stage stage, long outputBytes) {
+            recordOutside(stage, null, outputBytes);
+        }
+
+        Meter newMeter() {
+            return new Meter(listener != null, counter);
+        }
+
+        // The work since the last stage less what went on inside inside's calls:
+        // a caller's own work around its writes into the next stage
+        void recordOutside(Stage stage, Meter inside, long outputBytes) {
+            if (listener == null) {
+                return;
+            }
+            long wallNanos = System.nanoTime() - markNanos;
+            long allocated = counter != null ? minus(counter.allocatedBytes(), markAllocated) : UNKNOWN;
+            if (inside != null) {
+                wallNanos -= inside.nanos;
+                allocated = minus(allocated, inside.allocated);
+            }
+            stages.add(new StageMetric(stage, wallNanos, allocated, outputBytes));
+            mark();
+        }
+
+        // What inside saw less what nested saw within it: a stage between two boundaries
+        void recordBetween(Stage stage, Meter inside, Meter nested, long outputBytes) {
+            if (listener == null) {
+                return;
+            }
+            long wallNanos = inside.nanos;
+            long allocated = inside.allocated;
+            if (nested != null) {
+                wallNanos -= nested.nanos;
+                allocated = minus(allocated, nested.allocated);
+            }
+            stages.add(new StageMetric(stage, wallNanos, allocated, outputBytes));
+        }
+
+        public void finish() {
+            if (listener != null && !stages.isEmpty()) {
+                listener.onRun(new Run(RUN_IDS.incrementAndGet(), name, startedAt, new ArrayList<>(stages)));
+            }
+        }
+    }
+
+    private static final AtomicLong RUN_IDS = new AtomicLong();
+    private static final Recorder DISABLED = new Recorder("disabled", null, null);
+
+    private static volatile Listener listener;
+    private static volatile AllocationCounter allocationCounter;
+
+    private PipelineMetrics() {
+    }
+
+    public static void setListener(Listener newListener) {
+        listener = newListener;
+    }
+
+    public static void setAllocationCounter(AllocationCounter counter) {
+        allocationCounter = counter != null ? new CalibratedCounter(counter) : null;
+    }
+
+    // name tells runs apart in reports, e.g. "encode" or "decode"
+    public static Recorder start(String name) {
+        Listener current = listener;
+        return current != null ? new Recorder(name, current, allocationCounter) : DISABLED;
+    }
+
+    // A recorder that measures nothing, for callers that don't want metrics
+    public static Recorder disabled() {
+        return DISABLED;
+    }
+
+    // Subtracts what this thread's earlier readings allocated. Readings by other
+    // threads stay in, like any other allocation they make.
+    private static final class CalibratedCounter implements AllocationCounter {
+        private static final int CALIBRATION_READS = 8;
+
+        private final AllocationCounter counter;
+        private final long readCost;
+        private final ThreadLocal<long[]> reads = ThreadLocal.withInitial(() -> new long[1]);
+
+        CalibratedCounter(AllocationCounter counter) {
+            this.counter = counter;
+            long cost = Long.MAX_VALUE;
+            for (int i = 0; i < CALIBRATION_READS; i++) {
+                long first = counter.allocatedBytes();
+                long second = counter.allocatedBytes();
+                if (first == UNKNOWN || second == UNKNOWN) {
+                    cost = 0;
+                    break;
+                }
+                // The least of several tries, in case another thread allocated in between
+                cost = Math.min(cost, Math.max(0, second - first));
+            }
+            this.readCost = cost;
+        }
+
+        @Override
+        public long allocatedBytes() {
+            long[] count = reads.get();
+            long allocated = counter.allocatedBytes();
+            long earlier = count[0]++;
+            return allocated == UNKNOWN ? UNKNOWN : allocated - earlier * readCost;
+        }
+    }
+
+    private static long minus(long a, long b) {
+        return a == UNKNOWN || b == UNKNOWN ? UNKNOWN : Math.max(0, a - b);
+    }
+
+    private static long plus(long a, long b) {
+        return a == UNKNOWN || b == UNKNOWN ? UNKNOWN : a + b;
+    }
+
+    // One row per stage; unknown allocations are left empty
+    public static void writeCsv(Writer out, List<Run> runs) throws IOException {
+        out.write(CSV_HEADER);
+        out.write('\n');
+        for (Run run : runs) {
+            for (StageMetric stage : run.stages) {
+                out.write(run.id + "," + run.startedAt + "," + run.name + "," + stage.stage.label() + ","
+                        + stage.wallNanos / 1000 + ","
+                        + (stage.allocatedBytes == UNKNOWN ? "" : Long.toString(stage.allocatedBytes)) + ","
+                        + stage.outputBytes + "\n");
+            }
+        }
+    }
+}
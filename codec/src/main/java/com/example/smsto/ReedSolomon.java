@@ -0,0 +1,177 @@
+package com.example.smsto;
+
+// Systematic Reed-Solomon erasure code over GF(256). The k data shards are sent
+// as-is and each parity shard is a Cauchy-matrix combination of them, so any k
+// of the k + m shards are enough to rebuild the data.
+public final class ReedSolomon {
+
+    public static final int MAX_SHARDS = 256;
+
+    private static final int[] EXP = new int[512];
+    private static final int[] LOG = new int[256];
+
+    static {
+        int x = 1;
+        for (int i = 0; i < 255; i++) {
+            EXP[i] = x;
+            LOG[x] = i;
+            x <<= 1;
+            if (x >= 256) {
+                x ^= 0x11D;
+            }
+        }
+        for (int i = 255; i < EXP.length; i++) {
+            EXP[i] = EXP[i - 255];
+        }
+    }
+
+    private final int dataShards;
+    private final int parityShards;
+    private final int[][] parityMatrix;
+
+    public ReedSolomon(int dataShards, int parityShards) {
+        if (dataShards <= 0 || parityShards < 0 || dataShards + parityShards > MAX_SHARDS) {
+            throw new IllegalArgumentException("Invalid shard counts: " + dataShards + " + " + parityShards);
+        }
+        this.dataShards = dataShards;
+        this.parityShards = parityShards;
+        this.parityMatrix = new int[parityShards][dataShards];
+        for (int i = 0; i < parityShards; i++) {
+            for (int j = 0; j < dataShards; j++) {
+                parityMatrix[i][j] = inverse((dataShards + i) ^ j);
+            }
+        }
+    }
+
+    public int getDataShards() {
+        return dataShards;
+    }
+
+    public int getParityShards() {
+        return parityShards;
+    }
+
+    // All data shards must have the same length
+    public byte[][] encodeParity(byte[][] data) {
+        int shardSize = data[0].length;
+        byte[][] parity = new byte[parityShards][shardSize];
+        for (int i = 0; i < parityShards; i++) {
+            for (int j = 0; j < dataShards; j++) {
+                mulAdd(parityMatrix[i][j], data[j], parity[i]);
+            }
+        }
+        return parity;
+    }
+
+    // shards holds k + m slots, null where a shard is missing; returns the k data shards
+    public byte[][] decode(byte[][] shards) {
+        if (shards.length != dataShards + parityShards) {
+            throw new IllegalArgumentException("Expected " + (dataShards + parityShards) + " shard slots");
+        }
+        int[] present = new int[dataShards];
+        int count = 0;
+        int shardSize = -1;
+        for (int i = 0; i < shards.length && count < dataShards; i++) {
+            if (shards[i] != null) {
+                present[count++] = i;
+                shardSize = shards[i].length;
+            }
+        }
+        if (count < dataShards) {
+            throw new IllegalArgumentException("Need " + dataShards + " shards, have " + count);
+        }
+
+        byte[][] data = new byte[dataShards][];
+        boolean complete = true;
+        for (int j = 0; j < dataShards; j++) {
+            data[j] = shards[j];
+            complete &= shards[j] != null;
+        }
+        if (complete) {
+            return data;
+        }
+
+        int[][] matrix = new int[dataShards][];
+        for (int r = 0; r < dataShards; r++) {
+            int index = present[r];
+            if (index < dataShards) {
+                matrix[r] = new int[dataShards];
+                matrix[r][index] = 1;
+            } else {
+                matrix[r] = parityMatrix[index - dataShards].clone();
+            }
+        }
+        int[][] inverse = invert(matrix);
+        for (int j = 0; j < dataShards; j++) {
+            if (data[j] == null) {
+                byte[] rebuilt = new byte[shardSize];
+                for (int r = 0; r < dataShards; r++) {
+                    mulAdd(inverse[j][r], shards[present[r]], rebuilt);
+                }
+                data[j] = rebuilt;
+            }
+        }
+        return data;
+    }
+
+    private static void mulAdd(int coefficient, byte[] in, byte[] out) {
+        if (coefficient == 0) {
+            return;
+        }
+        int logC = LOG[coefficient];
+        for (int i = 0; i < in.length; i++) {
+            int v = in[i] & 0xFF;
+            if (v != 0) {
+                out[i] ^= (byte) EXP[LOG[v] + logC];
+            }
+        }
+    }
+
+    private static int multiply(int a, int b) {
+        return a == 0 || b == 0 ? 0 : EXP[LOG[a] + LOG[b]];
+    }
+
+    private static int inverse(int a) {
+        if (a == 0) {
+            throw new ArithmeticException("Zero has no inverse in GF(256)");
+        }
+        return EXP[255 - LOG[a]];
+    }
+
+    // Gauss-Jordan elimination; Cauchy-derived matrices are always invertible
+    private static int[][] invert(int[][] matrix) {
+        int n = matrix.length;
+        int[][] result = new int[n][n];
+        for (int i = 0; i < n; i++) {
+            result[i][i] = 1;
+        }
+        for (int col = 0; col < n; col++) {
+            int pivot = col;
+            while (matrix[pivot][col] == 0) {
+                pivot++;
+            }
+            int[] swap = matrix[pivot];
+            matrix[pivot] = matrix[col];
+            matrix[col] = swap;
+            swap = result[pivot];
+            result[pivot] = result[col];
+            result[col] = swap;
+
+            int scale = inverse(matrix[col][col]);
+            for (int c = 0; c < n; c++) {
+                matrix[col][c] = multiply(matrix[col][c], scale);
+                result[col][c] = multiply(result[col][c], scale);
+            }
+            for (int row = 0; row < n; row++) {
+                int factor = matrix[row][col];
+                if (row != col && factor != 0) {
+                    for (int c = 0; c < n; c++) {
+                        matrix[row][c] ^= multiply(factor, matrix[col][c]);
+                        result[row][c] ^= multiply(factor, result[col][c]);
+                    }
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,125 @@
+package com.example.smsto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Collects framed segments in any order, across as many pastes as it takes.
+// A segment from a different message starts a new one.
+public class SegmentReassembler {
+
+    private int messageId = -1;
+    private char kind;
+    private String[] bodies;
+    private int required;
+    private int received;
+    private int rejected;
+
+    // Splits text on segment markers and keeps every segment that checks out
+    public synchronized int accept(String text) {
+        int accepted = 0;
+        int start = text.indexOf(SmsSegment.MARKER);
+        while (start >= 0) {
+            int end = text.indexOf(SmsSegment.MARKER, start + 1);
+            String piece = end < 0 ? text.substring(start) : text.substring(start, end);
+            try {
+                if (add(SmsSegment.parse(piece))) {
+                    accepted++;
+                }
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+            start = end;
+        }
+        return accepted;
+    }
+
+    // Text segments are all needed; FEC segments only need as many as there are data shards
+    public synchronized boolean isComplete() {
+        return bodies != null && received >= required;
+    }
+
+    public synchronized int getReceived() {
+        return received;
+    }
+
+    public synchronized int getTotal() {
+        return bodies == null ? 0 : bodies.length;
+    }
+
+    public synchronized int getRequired() {
+        return required;
+    }
+
+    public synchronized int getRejected() {
+        return rejected;
+    }
+
+    public synchronized char getKind() {
+        return kind;
+    }
+
+    // Zero-based indices of segments still outstanding
+    public synchronized List<Integer> getMissing() {
+        List<Integer> missing = new ArrayList<>();
+        if (bodies != null) {
+            for (int i = 0; i < bodies.length; i++) {
+                if (bodies[i] == null) {
+                    missing.add(i);
+                }
+            }
+        }
+        return missing;
+    }
+
+    // Bodies of the leading run of segments that have all arrived
+    public synchronized String contiguousPrefix() {
+        StringBuilder sb = new StringBuilder();
+        if (bodies != null) {
+            for (String body : bodies) {
+                if (body == null) {
+                    break;
+                }
+                sb.append(body);
+            }
+        }
+        return sb.toString();
+    }
+
+    public synchronized String assemble() {
+        if (!isComplete() || kind != SmsSegment.KIND_TEXT) {
+            throw new IllegalStateException("Missing " + (getTotal() - received) + " segments");
+        }
+        return contiguousPrefix();
+    }
+
+    // Segment bodies by index, null where a segment has not arrived
+    public synchronized String[] getBodies() {
+        return bodies == null ? new String[0] : bodies.clone();
+    }
+
+    public synchronized void reset() {
+        messageId = -1;
+        bodies = null;
+        required = 0;
+        received = 0;
+        rejected = 0;
+    }
+
+    private boolean add(SmsSegment segment) {
+        if (segment.getMessageId() != messageId || bodies == null || bodies.length != segment.getTotal()
+                || segment.getKind() != kind) {
+            int needed = segment.getKind() == SmsSegment.KIND_FEC ? FecSegments.dataShards(segment.getBody()) : segment.getTotal();
+            messageId = segment.getMessageId();
+            kind = segment.getKind();
+            bodies = new String[segment.getTotal()];
+            required = needed;
+            received = 0;
+        }
+        if (bodies[segment.getIndex()] != null) {
+            return false;
+        }
+        bodies[segment.getIndex()] = segment.getBody();
+        received++;
+        return true;
+    }
+}
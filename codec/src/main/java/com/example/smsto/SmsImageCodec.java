@@ -0,0 +1,325 @@
+package com.example.smsto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+
+// Entry point of the codec library: compressed image bytes in, framed SMS
+// segments out, and back. Platform image compression stays with the caller;
+// everything after it is here so the app and a JVM gateway share one path.
+// Immutable and safe to share between threads. Logs through CodecLog.
+public final class SmsImageCodec {
+
+    private static final String TAG = "SmsImageCodec";
+
+    private final TextCodec textCodec;
+    private final PayloadCodec payloadCodec;
+    private final int paritySegments;
+
+    private SmsImageCodec(Builder builder) {
+        this.textCodec = builder.textCodec;
+        this.payloadCodec = builder.payloadCodec;
+        this.paritySegments = builder.paritySegments;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder {
+        private TextCodec textCodec = TextCodecs.GSM;
+        private PayloadCodec payloadCodec;
+        private int paritySegments;
+
+        private Builder() {
+        }
+
+        public Builder textCodec(TextCodec textCodec) {
+            this.textCodec = textCodec;
+            return this;
+        }
+
+        // null picks PayloadCodecs.defaultFor the image format being sent
+        public Builder payloadCodec(PayloadCodec payloadCodec) {
+            this.payloadCodec = payloadCodec;
+            return this;
+        }
+
+        // Reed-Solomon parity segments; that many segments may go missing. 0 turns FEC off.
+        public Builder paritySegments(int paritySegments) {
+            if (paritySegments < 0) {
+                throw new IllegalArgumentException("Negative parity segment count: " + paritySegments);
+            }
+            this.paritySegments = paritySegments;
+            return this;
+        }
+
+        public SmsImageCodec build() {
+            if (textCodec == null) {
+                throw new IllegalStateException("No text codec");
+            }
+            return new SmsImageCodec(this);
+        }
+    }
+
+    // Image bytes written to an Encoder become segments once it is closed.
+    // The stage boundaries are metered for the recorder: the caller's image
+    // compression, payload compression, text encoding (which also cuts the text
+    // into bodies as it streams) and splitting, or FEC encoding.
+    public final class Encoder extends OutputStream {
+        private final int messageId;
+        private final PipelineMetrics.Recorder recorder;
+        // Image bytes in, and the time spent in every stage after the caller's
+        private final MeteredOutputStream pipeline;
+        private final ByteArrayOutputStream frame;
+        // Frame bytes into text encoding, without parity
+        private final MeteredOutputStream frameOut;
+        private final CountingWriter text;
+        private final SmsSegmentSink sink;
+        private List<String> segments;
+
+        private Encoder(int imageCodec, int messageId, PipelineMetrics.Recorder recorder) throws IOException {
+            this.messageId = messageId;
+            this.recorder = recorder;
+            PayloadCodec codec = payloadCodecFor(imageCodec);
+            if (paritySegments > 0) {
+                // Parity needs the whole frame, which is only as big as the compressed image
+                frame = new ByteArrayOutputStream();
+                frameOut = null;
+                text = null;
+                sink = null;
+                pipeline = new MeteredOutputStream(
+                        PayloadFormat.openFrameEncoder(frame, imageCodec, codec), recorder.newMeter());
+            } else {
+                frame = null;
+                sink = new SmsSegmentSink(messageId, null);
+                text = new CountingWriter(sink);
+                frameOut = new MeteredOutputStream(PayloadFormat.openTextEncoder(text, textCodec), recorder.newMeter());
+                pipeline = new MeteredOutputStream(
+                        PayloadFormat.openFrameEncoder(frameOut, imageCodec, codec), recorder.newMeter());
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            pipeline.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            pipeline.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (segments != null) {
+                return;
+            }
+            pipeline.close();
+            recorder.recordOutside(PipelineMetrics.Stage.IMAGE_COMPRESS, pipeline.getMeter(), pipeline.getCount());
+            if (frame != null) {
+                recorder.recordBetween(PipelineMetrics.Stage.PAYLOAD_COMPRESS, pipeline.getMeter(), null, frame.size());
+                segments = FecSegments.encode(frame.toByteArray(), textCodec, messageId, paritySegments);
+                recorder.record(PipelineMetrics.Stage.FEC_ENCODE, textLength(segments));
+            } else {
+                recorder.recordBetween(PipelineMetrics.Stage.PAYLOAD_COMPRESS, pipeline.getMeter(), frameOut.getMeter(), frameOut.getCount());
+                recorder.recordBetween(PipelineMetrics.Stage.TEXT_ENCODE, frameOut.getMeter(), null, text.getCount());
+                sink.close();
+                segments = sink.getSegments();
+                recorder.record(PipelineMetrics.Stage.SPLIT, textLength(segments));
+            }
+            if (CodecLog.isLoggable(CodecLog.DEBUG)) {
+                CodecLog.d(TAG, "Encoded message " + messageId + " into " + segments.size() + " segments");
+            }
+        }
+
+        public List<String> getSegments() {
+            if (segments == null) {
+                throw new IllegalStateException("Encoder is still open");
+            }
+            return segments;
+        }
+    }
+
+    public TextCodec getTextCodec() {
+        return textCodec;
+    }
+
+    public int getParitySegments() {
+        return paritySegments;
+    }
+
+    public PayloadCodec payloadCodecFor(int imageCodec) {
+        return payloadCodec != null ? payloadCodec : PayloadCodecs.defaultFor(imageCodec);
+    }
+
+    // messageId tells concurrent messages apart on the receiving side, 0 to SmsSegment.MAX_SEGMENTS - 1
+    public Encoder newEncoder(int imageCodec, int messageId) throws IOException {
+        return new Encoder(imageCodec, messageId, PipelineMetrics.disabled());
+    }
+
+    // Records the stages of the encode in recorder's run when the Encoder is
+    // closed. Image compression is the time since recorder's last stage spent
+    // outside the Encoder's own calls, so compress straight into it.
+    public Encoder newEncoder(int imageCodec, int messageId, PipelineMetrics.Recorder recorder) throws IOException {
+        return new Encoder(imageCodec, messageId, recorder);
+    }
+
+    public List<String> encode(byte[] image, int imageCodec, int messageId) throws IOException {
+        Encoder encoder = newEncoder(imageCodec, messageId);
+        try (OutputStream out = encoder) {
+            out.write(image);
+        }
+        return encoder.getSegments();
+    }
+
+    // Binary frame only, for callers that try several encodings before segmenting one
+    public OutputStream openFrameEncoder(OutputStream out, int imageCodec) throws IOException {
+        return PayloadFormat.openFrameEncoder(out, imageCodec, payloadCodecFor(imageCodec));
+    }
+
+    public List<String> segmentFrame(byte[] frame, int length, int messageId) throws IOException {
+        return segmentFrame(frame, length, messageId, PipelineMetrics.disabled());
+    }
+
+    // Records text encoding and splitting, or FEC encoding, as stages of recorder's run
+    public List<String> segmentFrame(byte[] frame, int length, int messageId, PipelineMetrics.Recorder recorder) throws IOException {
+        List<String> segments;
+        recorder.mark();
+        if (paritySegments > 0) {
+            byte[] exact = length == frame.length ? frame : Arrays.copyOf(frame, length);
+            segments = FecSegments.encode(exact, textCodec, messageId, paritySegments);
+            recorder.record(PipelineMetrics.Stage.FEC_ENCODE, textLength(segments));
+            return segments;
+        }
+        SmsSegmentSink sink = new SmsSegmentSink(messageId, null);
+        CountingWriter text = new CountingWriter(sink);
+        PayloadFormat.encodeFrame(text, textCodec, frame, length);
+        recorder.record(PipelineMetrics.Stage.TEXT_ENCODE, text.getCount());
+        sink.close();
+        segments = sink.getSegments();
+        recorder.record(PipelineMetrics.Stage.SPLIT, textLength(segments));
+        return segments;
+    }
+
+    // Segments segmentFrame would produce, without building them
+    public int segmentCount(byte[] frame, int length) throws IOException {
+        if (paritySegments > 0) {
+            return FecSegments.segmentCount(length, textCodec, paritySegments);
+        }
+        SeptetCounter counter = new SeptetCounter();
+        PayloadFormat.encodeFrame(counter, textCodec, frame, length);
+        return SmsSegmentSink.segmentCount(counter.count);
+    }
+
+    // A complete payload pasted as one piece: unframed versioned or legacy text
+    public PayloadFormat.Decoded decode(String text) throws IOException {
+        if (PayloadFormat.isLegacy(text)) {
+            return new PayloadFormat.Decoded(PayloadFormat.IMAGE_CODEC_JPEG, decodeLegacy(text));
+        }
+        return PayloadFormat.decode(text);
+    }
+
+    public PayloadFormat.Decoded decode(String text, PipelineMetrics.Recorder recorder) throws IOException {
+        if (PayloadFormat.isLegacy(text)) {
+            byte[] image = decodeLegacy(text);
+            recorder.record(PipelineMetrics.Stage.PAYLOAD_DECOMPRESS, image.length);
+            return new PayloadFormat.Decoded(PayloadFormat.IMAGE_CODEC_JPEG, image);
+        }
+        byte[] frame = PayloadFormat.decodeText(text);
+        recorder.record(PipelineMetrics.Stage.TEXT_DECODE, frame.length);
+        return decodeFrame(frame, recorder);
+    }
+
+    // Bodies of framed segments from a complete SegmentReassembler
+    public PayloadFormat.Decoded decodeSegments(char kind, String[] bodies) throws IOException {
+        return PayloadFormat.decodeSegments(kind, bodies);
+    }
+
+    public PayloadFormat.Decoded decodeSegments(char kind, String[] bodies, PipelineMetrics.Recorder recorder) throws IOException {
+        if (kind != SmsSegment.KIND_FEC) {
+            return decode(String.join("", bodies), recorder);
+        }
+        byte[] frame = FecSegments.decode(bodies);
+        recorder.record(PipelineMetrics.Stage.FEC_DECODE, frame.length);
+        return decodeFrame(frame, recorder);
+    }
+
+    private static PayloadFormat.Decoded decodeFrame(byte[] frame, PipelineMetrics.Recorder recorder) throws IOException {
+        PayloadFormat.Decoded decoded = PayloadFormat.decodeFrame(frame);
+        recorder.record(PipelineMetrics.Stage.PAYLOAD_DECOMPRESS, decoded.getImage().length);
+        return decoded;
+    }
+
+    // Start of the image from segments still arriving, for a preview that sharpens
+    // as more come in. null until there is something to show.
+    public PayloadFormat.Decoded decodePreview(char kind, String[] bodies) {
+        try {
+            return PayloadFormat.decodeSegmentsPrefix(kind, bodies);
+        } catch (IllegalArgumentException e) {
+            // A corrupt prefix only costs the preview; the full decode reports it
+            CodecLog.w(TAG, "No preview: " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static long textLength(List<String> segments) {
+        long length = 0;
+        for (String segment : segments) {
+            length += segment.length();
+        }
+        return length;
+    }
+
+    // Base64 -> GZIP -> Base64 payloads from before the versioned format
+    private static byte[] decodeLegacy(String text) {
+        String base64Image;
+        try {
+            byte[] compressed = Base64.getMimeDecoder().decode(text);
+            base64Image = new String(PayloadCodecs.GZIP.decode(compressed, 0, compressed.length), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException | IOException e) {
+            CodecLog.e(TAG, "Legacy decompression failed: " + e.getMessage(), e);
+            throw new IllegalArgumentException("Invalid text format");
+        }
+        if (base64Image.isEmpty()) {
+            throw new IllegalArgumentException("Invalid text format");
+        }
+        if (CodecLog.isLoggable(CodecLog.DEBUG)) {
+            CodecLog.d(TAG, "Decompressed Base64 length: " + base64Image.length());
+        }
+        try {
+            return Base64.getMimeDecoder().decode(base64Image);
+        } catch (IllegalArgumentException e) {
+            CodecLog.e(TAG, "Base64 decoding failed: " + e.getMessage());
+            throw new IllegalArgumentException("Bad Base-64");
+        }
+    }
+
+    // The text codecs only emit single-septet GSM characters
+    private static final class SeptetCounter extends Writer {
+        int count;
+
+        @Override
+        public void write(int c) {
+            count++;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
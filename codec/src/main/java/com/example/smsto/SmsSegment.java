@@ -0,0 +1,105 @@
+package com.example.smsto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+// One SMS of a multipart payload:
+//   '*' <kind> <message id:2> <index:2> <total:2> <crc:2> <body>
+// Header fields are base-64 digits (12 bits per pair); the CRC covers
+// everything before it plus the body.
+public final class SmsSegment {
+
+    public static final char MARKER = '*';
+    public static final char KIND_TEXT = 'A';
+    public static final char KIND_FEC = 'F';
+    public static final int HEADER_LENGTH = 10;
+    public static final int MAX_SEGMENTS = 4096;
+
+    private static final String DIGITS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    private final char kind;
+    private final int messageId;
+    private final int index;
+    private final int total;
+    private final String body;
+
+    public SmsSegment(char kind, int messageId, int index, int total, String body) {
+        if (total <= 0 || total > MAX_SEGMENTS || index < 0 || index >= total) {
+            throw new IllegalArgumentException("Invalid segment " + index + " of " + total);
+        }
+        this.kind = kind;
+        this.messageId = messageId & (MAX_SEGMENTS - 1);
+        this.index = index;
+        this.total = total;
+        this.body = body;
+    }
+
+    public static boolean isFramed(String text) {
+        return text != null && !text.isEmpty() && text.charAt(0) == MARKER;
+    }
+
+    public static SmsSegment parse(String text) {
+        if (!isFramed(text) || text.length() < HEADER_LENGTH) {
+            throw new IllegalArgumentException("Segment header is missing or truncated");
+        }
+        int messageId = field(text, 2);
+        int index = field(text, 4);
+        int total = field(text, 6);
+        int crc = field(text, 8);
+        String body = text.substring(HEADER_LENGTH);
+        if (crc != crc(text.substring(0, 8), body)) {
+            throw new IllegalArgumentException("Segment checksum mismatch");
+        }
+        return new SmsSegment(text.charAt(1), messageId, index, total, body);
+    }
+
+    public String format() {
+        StringBuilder sb = new StringBuilder(HEADER_LENGTH + body.length());
+        sb.append(MARKER).append(kind);
+        appendField(sb, messageId);
+        appendField(sb, index);
+        appendField(sb, total);
+        appendField(sb, crc(sb.toString(), body));
+        return sb.append(body).toString();
+    }
+
+    public char getKind() {
+        return kind;
+    }
+
+    public int getMessageId() {
+        return messageId;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    private static int crc(String header, String body) {
+        CRC32 crc = new CRC32();
+        crc.update(header.getBytes(StandardCharsets.UTF_8));
+        crc.update(body.getBytes(StandardCharsets.UTF_8));
+        return (int) (crc.getValue() & (MAX_SEGMENTS - 1));
+    }
+
+    static void appendField(StringBuilder sb, int value) {
+        sb.append(DIGITS.charAt(value >>> 6)).append(DIGITS.charAt(value & 63));
+    }
+
+    static int field(String text, int offset) {
+        int high = DIGITS.indexOf(text.charAt(offset));
+        int low = DIGITS.indexOf(text.charAt(offset + 1));
+        if (high < 0 || low < 0) {
+            throw new IllegalArgumentException("Invalid segment header");
+        }
+        return (high << 6) | low;
+    }
+}
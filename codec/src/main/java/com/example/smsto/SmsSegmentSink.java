@@ -0,0 +1,104 @@
+package com.example.smsto;
+
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+// Terminal stage of the encode pipeline: collects GSM-7 payload text and cuts
+// it into segment bodies as it arrives. Each body leaves room for the segment
+// header, which is stamped on close once the total count is known. A payload
+// that fits one 160-septet SMS is not split.
+// Segments are sized for one concatenated SMS: sent back to back with no
+// separator, every full segment fills exactly one 153-septet carrier part,
+// so a part that arrives on its own is still a whole, checkable segment.
+public class SmsSegmentSink extends Writer {
+
+    public interface Listener {
+        void onSegment(int index, String segment);
+    }
+
+    private static final int BODY_SEPTETS = SmsSegmenter.GSM_MULTIPART_SEPTETS - SmsSegment.HEADER_LENGTH;
+    private static final int SINGLE_BODY_SEPTETS = SmsSegmenter.GSM_SINGLE_SEPTETS - SmsSegment.HEADER_LENGTH;
+
+    private final int messageId;
+    private final Listener listener;
+    private final List<String> bodies = new ArrayList<>();
+    private final List<String> segments = new ArrayList<>();
+    private final StringBuilder current = new StringBuilder(BODY_SEPTETS);
+    private int septets;
+    private int totalSeptets;
+    private boolean closed;
+
+    public SmsSegmentSink(int messageId, Listener listener) {
+        this.messageId = messageId;
+        this.listener = listener;
+    }
+
+    @Override
+    public void write(int c) {
+        int cost = GsmAlphabet.septets((char) c);
+        if (cost == 0) {
+            throw new IllegalArgumentException("Character not in the GSM 03.38 alphabet: '" + (char) c + "'");
+        }
+        if (septets + cost > BODY_SEPTETS) {
+            bodies.add(current.toString());
+            current.setLength(0);
+            septets = 0;
+        }
+        current.append((char) c);
+        septets += cost;
+        totalSeptets += cost;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        for (int i = 0; i < len; i++) {
+            write(cbuf[off + i]);
+        }
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (totalSeptets <= SINGLE_BODY_SEPTETS) {
+            // Everything fits in one unsegmented SMS
+            String single = String.join("", bodies) + current;
+            bodies.clear();
+            bodies.add(single);
+        } else if (current.length() > 0) {
+            bodies.add(current.toString());
+        }
+        current.setLength(0);
+        int total = bodies.size();
+        if (total > SmsSegment.MAX_SEGMENTS) {
+            throw new IllegalStateException("Payload needs " + total + " segments, limit is " + SmsSegment.MAX_SEGMENTS);
+        }
+        for (int i = 0; i < total; i++) {
+            String segment = new SmsSegment(SmsSegment.KIND_TEXT, messageId, i, total, bodies.get(i)).format();
+            segments.add(segment);
+            if (listener != null) {
+                listener.onSegment(i, segment);
+            }
+        }
+        bodies.clear();
+    }
+
+    public List<String> getSegments() {
+        return segments;
+    }
+
+    // Segments the sink will produce for a payload of this many septets
+    public static int segmentCount(int septets) {
+        if (septets <= SINGLE_BODY_SEPTETS) {
+            return 1;
+        }
+        return (septets + BODY_SEPTETS - 1) / BODY_SEPTETS;
+    }
+}
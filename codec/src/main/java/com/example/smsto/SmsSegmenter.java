@@ -0,0 +1,124 @@
+package com.example.smsto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Works out how a text is split into concatenated SMS: GSM-7 when every
+// character is in the default alphabet (escape characters cost two septets),
+// UCS-2 otherwise. Multipart segments lose room to the 6-byte concatenation UDH.
+public final class SmsSegmenter {
+
+    public static final int GSM_SINGLE_SEPTETS = 160;
+    public static final int GSM_MULTIPART_SEPTETS = 153;
+    public static final int UCS2_SINGLE_UNITS = 70;
+    public static final int UCS2_MULTIPART_UNITS = 67;
+
+    public enum Encoding {
+        GSM_7, UCS_2
+    }
+
+    public static final class Plan {
+        private final Encoding encoding;
+        private final int units;
+        private final int[] ends;
+        private final int segmentCount;
+
+        Plan(Encoding encoding, int units, int[] ends, int segmentCount) {
+            this.encoding = encoding;
+            this.units = units;
+            this.ends = ends;
+            this.segmentCount = segmentCount;
+        }
+
+        public Encoding getEncoding() {
+            return encoding;
+        }
+
+        // Septets for GSM-7, UTF-16 code units for UCS-2
+        public int getUnits() {
+            return units;
+        }
+
+        public int getSegmentCount() {
+            return segmentCount;
+        }
+
+        public int start(int segment) {
+            return segment == 0 ? 0 : ends[segment - 1];
+        }
+
+        public int end(int segment) {
+            return ends[segment];
+        }
+
+        public List<String> split(CharSequence text) {
+            List<String> segments = new ArrayList<>(segmentCount);
+            for (int i = 0; i < segmentCount; i++) {
+                segments.add(text.subSequence(start(i), end(i)).toString());
+            }
+            return segments;
+        }
+    }
+
+    private SmsSegmenter() {
+    }
+
+    public static Plan plan(CharSequence text) {
+        int length = text.length();
+        if (length == 0) {
+            return new Plan(Encoding.GSM_7, 0, new int[0], 0);
+        }
+        int[] ends = new int[length / GSM_MULTIPART_SEPTETS + 1];
+        int count = 0;
+        int used = 0;
+        int total = 0;
+        for (int i = 0; i < length; i++) {
+            int cost = GsmAlphabet.septets(text.charAt(i));
+            if (cost == 0) {
+                return planUcs2(text);
+            }
+            if (used + cost > GSM_MULTIPART_SEPTETS) {
+                ends = append(ends, count++, i);
+                used = 0;
+            }
+            used += cost;
+            total += cost;
+        }
+        if (total <= GSM_SINGLE_SEPTETS) {
+            return new Plan(Encoding.GSM_7, total, new int[]{length}, 1);
+        }
+        ends = append(ends, count++, length);
+        return new Plan(Encoding.GSM_7, total, ends, count);
+    }
+
+    private static Plan planUcs2(CharSequence text) {
+        int length = text.length();
+        if (length <= UCS2_SINGLE_UNITS) {
+            return new Plan(Encoding.UCS_2, length, new int[]{length}, 1);
+        }
+        int[] ends = new int[length / UCS2_MULTIPART_UNITS + 2];
+        int count = 0;
+        int used = 0;
+        for (int i = 0; i < length; i++) {
+            // Never split a surrogate pair across segments
+            int cost = Character.isHighSurrogate(text.charAt(i)) && i + 1 < length ? 2 : 1;
+            if (used + cost > UCS2_MULTIPART_UNITS) {
+                ends = append(ends, count++, i);
+                used = 0;
+            }
+            used += cost;
+            i += cost - 1;
+        }
+        ends = append(ends, count++, length);
+        return new Plan(Encoding.UCS_2, length, ends, count);
+    }
+
+    private static int[] append(int[] array, int index, int value) {
+        if (index == array.length) {
+            array = Arrays.copyOf(array, array.length * 2 + 1);
+        }
+        array[index] = value;
+        return array;
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.smsto;
+
+import java.io.OutputStream;
+
+// Byte Huffman that codes with a pretrained table from HuffmanTables unless a
+// table fitted to the payload, header included, would come out smaller:
+//   <table ID << 3 | padding bits> <code bits>        static table
+//   <ADAPTIVE << 3>                <FORMAT_BYTES packet>  fitted table
+public class StaticHuffmanCodec implements PayloadCodec {
+
+    private static final int PACKET_HEADER_SIZE = CanonicalHuffman.headerSize(CanonicalHuffman.BYTE_ALPHABET_SIZE);
+
+    private final int id;
+
+    StaticHuffmanCodec(int id) {
+        this.id = id;
+    }
+
+    @Override
+    public int id() {
+        return id;
+    }
+
+    @Override
+    public String name() {
+        return "Huffman (static tables)";
+    }
+
+    @Override
+    public OutputStream encoder(OutputStream out) {
+        return PayloadCodecs.blockEncoder(out, StaticHuffmanCodec::encode);
+    }
+
+    static byte[] encode(byte[] data, int length) {
+        int[] freq = new int[CanonicalHuffman.BYTE_ALPHABET_SIZE];
+        for (int i = 0; i < length; i++) {
+            freq[data[i] & 0xFF]++;
+        }
+        int bestTable = HuffmanTables.ADAPTIVE;
+        long bestBits = Long.MAX_VALUE;
+        for (int table : HuffmanTables.staticIds()) {
+            long bits = HuffmanTables.get(table).bitCount(freq);
+            if (bits < bestBits) {
+                bestBits = bits;
+                bestTable = table;
+            }
+        }
+        long staticSize = 1 + (bestBits + 7) / 8;
+
+        // No fitted table beats the order-0 entropy, so a static table within the
+        // fitted header's cost of it wins without building a tree at all
+        if (staticSize > 1 + PACKET_HEADER_SIZE + (long) Math.ceil(entropyBits(freq, length) / 8)) {
+            byte[] packet = HuffmanCodec.fromFrequencies(freq).encodePacket(data, 0, length);
+            if (1L + packet.length < staticSize) {
+                byte[] out = new byte[1 + packet.length];
+                out[0] = (byte) (HuffmanTables.ADAPTIVE << 3);
+                System.arraycopy(packet, 0, out, 1, packet.length);
+                return out;
+            }
+        }
+        HuffmanCodec.Encoded encoded = HuffmanTables.get(bestTable).encode(data, 0, length);
+        byte[] bits = encoded.getBytes();
+        byte[] out = new byte[1 + bits.length];
+        out[0] = (byte) (bestTable << 3 | (8 - encoded.getBitCount() % 8) % 8);
+        System.arraycopy(bits, 0, out, 1, bits.length);
+        return out;
+    }
+
+    @Override
+    public byte[] decode(byte[] data, int offset, int length) {
+        if (length < 1) {
+            throw new IllegalArgumentException("Empty Huffman payload");
+        }
+        int table = (data[offset] & 0xFF) >>> 3;
+        if (table == HuffmanTables.ADAPTIVE) {
+            return HuffmanCodec.decodeAnyPacket(data, offset + 1, length - 1);
+        }
+        int padding = data[offset] & 0x07;
+        return HuffmanTables.get(table).decode(data, offset + 1, (length - 1) * 8 - padding);
+    }
+
+    // Codes are sequential, so a cut-off payload still yields the image's first bytes
+    @Override
+    public byte[] decodePrefix(byte[] data, int offset, int length) {
+        if (length < 1) {
+            return null;
+        }
+        // Leaving out the padding bits costs a truncated payload at most one byte
+        // but keeps a complete one from gaining a made-up last byte
+        int table = (data[offset] & 0xFF) >>> 3;
+        if (table != HuffmanTables.ADAPTIVE) {
+            int bitCount = Math.max(0, (length - 1) * 8 - (data[offset] & 0x07));
+            return HuffmanTables.get(table).decodeAvailable(data, offset + 1, bitCount);
+        }
+        if (length - 1 < PACKET_HEADER_SIZE) {
+            return null;
+        }
+        HuffmanCodec codec = HuffmanCodec.fromPacket(data, offset + 1, length - 1);
+        int bitCount = Math.max(0, (length - 1 - PACKET_HEADER_SIZE) * 8 - (data[offset + 1] & 0x07));
+        return codec.decodeAvailable(data, offset + 1 + PACKET_HEADER_SIZE, bitCount);
+    }
+
+    private static double entropyBits(int[] freq, int total) {
+        double bits = 0;
+        for (int count : freq) {
+            if (count > 0) {
+                bits += count * (Math.log((double) total / count) / Math.log(2));
+            }
+        }
+        return bits;
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.smsto;
+
+import java.io.OutputStream;
+import java.io.Writer;
+
+// Binary-to-text stage of the payload, identified on the wire by id()
+public interface TextCodec {
+
+    char id();
+
+    // Bytes written to the returned stream come out as text on out; closing it closes out
+    OutputStream encoder(Writer out);
+
+    byte[] decode(String text);
+
+    // Bytes carried by the longest decodable start of a truncated text, for previews
+    default byte[] decodePrefix(String text) {
+        return decode(text);
+    }
+
+    // Largest byte count that always encodes to at most chars characters
+    int maxBytes(int chars);
+}
@@ -0,0 +1,33 @@
+package com.example.smsto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+
+public final class TextCodecs {
+
+    public static final TextCodec BASE64 = new Base64TextCodec();
+    public static final TextCodec GSM = new GsmBaseNCodec();
+
+    private TextCodecs() {
+    }
+
+    public static String encode(TextCodec codec, byte[] data) {
+        StringWriter out = new StringWriter(data.length * 2);
+        try (OutputStream encoder = codec.encoder(out)) {
+            encoder.write(data);
+        } catch (IOException e) {
+            throw new IllegalStateException("Text encoding failed", e);
+        }
+        return out.toString();
+    }
+
+    public static TextCodec forId(char id) {
+        if (id == BASE64.id()) {
+            return BASE64;
+        } else if (id == GSM.id()) {
+            return GSM;
+        }
+        throw new IllegalArgumentException("Unsupported text encoding: " + id);
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.smsto;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Code words land MSB first, and the tail of a partial last byte stays zero.
+ */
+public class BitWriterTest {
+
+    @Test
+    public void padsPartialLastByteWithZeros() {
+        BitWriter writer = new BitWriter(1);
+        writer.write(0b101, 3);
+        writer.write(0b11111111, 8);
+        assertEquals(11, writer.bitCount());
+        assertArrayEquals(new byte[]{(byte) 0xBF, (byte) 0xE0}, writer.toByteArray());
+    }
+
+    @Test
+    public void ignoresBitsAboveTheLength() {
+        BitWriter writer = new BitWriter(1);
+        writer.write(0xFFFF, 4);
+        writer.write(0, 4);
+        assertArrayEquals(new byte[]{(byte) 0xF0}, writer.toByteArray());
+    }
+
+    @Test
+    public void writesCodesLongerThan32Bits() {
+        BitWriter writer = new BitWriter(1);
+        writer.write(1, 1);
+        writer.write(0x123456789AL, 40);
+        assertEquals(41, writer.bitCount());
+        assertArrayEquals(new byte[]{(byte) 0x89, 0x1A, 0x2B, 0x3C, 0x4D, 0x00}, writer.toByteArray());
+    }
+
+    @Test
+    public void toByteArrayCanBeCalledMidStream() {
+        BitWriter writer = new BitWriter(1);
+        writer.write(1, 1);
+        assertArrayEquals(new byte[]{(byte) 0x80}, writer.toByteArray());
+        writer.write(1, 8);
+        assertArrayEquals(new byte[]{(byte) 0x80, (byte) 0x80}, writer.toByteArray());
+    }
+}
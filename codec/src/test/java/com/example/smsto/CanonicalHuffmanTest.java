@@ -0,0 +1,139 @@
+package com.example.smsto;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Canonical packets carry only the packed code lengths, and the decoder
+ * rebuilds the codes from them or rejects a header that cannot be right.
+ */
+public class CanonicalHuffmanTest {
+
+    private static final int BASE64_SYMBOLS = CanonicalHuffman.BASE64_ALPHABET.length();
+
+    private static String base64Text(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(CanonicalHuffman.BASE64_ALPHABET.charAt(random.nextInt(BASE64_SYMBOLS)));
+        }
+        return sb.toString();
+    }
+
+    private static int[] headerLengths(byte[] packet, int symbolCount) {
+        return CanonicalHuffman.unpackLengths(packet, 1, symbolCount);
+    }
+
+    private static void assertRejected(byte[] packet) {
+        try {
+            new HuffmanDecoder().decodeCanonical(packet);
+            fail("decoded a malformed packet");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void roundTripsBase64Text() {
+        String text = base64Text(5000, 1);
+        byte[] packet = new HuffmanEncoder().encodeCanonical(text);
+        assertTrue(CanonicalHuffman.hasFormat(packet, CanonicalHuffman.FORMAT_BASE64));
+        assertEquals(text, new HuffmanDecoder().decodeCanonical(packet));
+    }
+
+    @Test
+    public void decodeWithoutCodeMapRoutesToCanonical() {
+        String text = base64Text(777, 2) + "==";
+        byte[] packet = new HuffmanEncoder().encodeCanonical(text);
+        assertEquals(text, new HuffmanDecoder().decode(null, packet));
+        assertEquals(text, new HuffmanDecoder().decode("", packet));
+    }
+
+    @Test
+    public void limitsSkewedCodesToMaxLength() {
+        // Fibonacci counts would need codes of 23 bits without the limit
+        StringBuilder sb = new StringBuilder();
+        int previous = 1;
+        int count = 1;
+        for (int symbol = 0; symbol < 24; symbol++) {
+            for (int i = 0; i < count; i++) {
+                sb.append(CanonicalHuffman.BASE64_ALPHABET.charAt(symbol));
+            }
+            int next = previous + count;
+            previous = count;
+            count = next;
+        }
+        String text = sb.toString();
+        byte[] packet = new HuffmanEncoder().encodeCanonical(text);
+        for (int length : headerLengths(packet, BASE64_SYMBOLS)) {
+            assertTrue(length <= CanonicalHuffman.MAX_CODE_LENGTH);
+        }
+        assertEquals(text, new HuffmanDecoder().decodeCanonical(packet));
+    }
+
+    @Test
+    public void roundTripsSingleSymbol() {
+        byte[] packet = new HuffmanEncoder().encodeCanonical("QQQQQQQ");
+        int[] lengths = headerLengths(packet, BASE64_SYMBOLS);
+        assertEquals(1, lengths[CanonicalHuffman.base64Index('Q')]);
+        assertEquals(1, Arrays.stream(lengths).filter(length -> length > 0).count());
+        assertEquals("QQQQQQQ", new HuffmanDecoder().decodeCanonical(packet));
+
+        byte[] bytes = {9, 9, 9};
+        assertArrayEquals(bytes, new HuffmanDecoder().decodeBytes(new HuffmanEncoder().encodeBytes(bytes)));
+    }
+
+    @Test
+    public void roundTripsAll256ByteSymbols() {
+        byte[] data = new byte[4096];
+        Random random = new Random(3);
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i < 256 ? i : Integer.numberOfTrailingZeros(random.nextInt() | 0x100) * 31);
+        }
+        byte[] packet = new HuffmanEncoder().encodeBytes(data);
+        assertTrue(CanonicalHuffman.hasFormat(packet, CanonicalHuffman.FORMAT_BYTES));
+        for (int length : headerLengths(packet, CanonicalHuffman.BYTE_ALPHABET_SIZE)) {
+            assertTrue(length > 0 && length <= CanonicalHuffman.MAX_CODE_LENGTH);
+        }
+        assertArrayEquals(data, new HuffmanDecoder().decodeBytes(packet));
+    }
+
+    @Test
+    public void rejectsWrongFormatTag() {
+        byte[] packet = new HuffmanEncoder().encodeCanonical(base64Text(100, 4));
+        packet[0] = (byte) (CanonicalHuffman.FORMAT_BYTES | (packet[0] & 0x07));
+        assertRejected(packet);
+    }
+
+    @Test
+    public void rejectsTruncatedHeader() {
+        byte[] packet = new HuffmanEncoder().encodeCanonical(base64Text(100, 5));
+        assertRejected(Arrays.copyOf(packet, CanonicalHuffman.headerSize(BASE64_SYMBOLS)));
+        assertRejected(Arrays.copyOf(packet, 3));
+    }
+
+    @Test
+    public void rejectsOversubscribedLengths() {
+        byte[] packet = new HuffmanEncoder().encodeCanonical(base64Text(100, 6));
+        // Every symbol a one-bit code: far more codes than one bit can hold
+        Arrays.fill(packet, 1, CanonicalHuffman.headerSize(BASE64_SYMBOLS), (byte) 0x11);
+        assertRejected(packet);
+    }
+
+    @Test
+    public void rejectsHeaderWithoutCodes() {
+        byte[] packet = new HuffmanEncoder().encodeCanonical(base64Text(100, 7));
+        Arrays.fill(packet, 1, CanonicalHuffman.headerSize(BASE64_SYMBOLS), (byte) 0);
+        assertRejected(packet);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMalformedByteHeader() {
+        byte[] packet = new HuffmanEncoder().encodeBytes(new byte[]{1, 2, 3, 4});
+        Arrays.fill(packet, 1, CanonicalHuffman.headerSize(CanonicalHuffman.BYTE_ALPHABET_SIZE), (byte) 0x11);
+        new HuffmanDecoder().decodeBytes(packet);
+    }
+}
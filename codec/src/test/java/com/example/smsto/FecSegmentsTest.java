@@ -0,0 +1,70 @@
+package com.example.smsto;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reed-Solomon segments rebuild the exact frame from any k of the n segments,
+ * whichever ones were lost.
+ */
+public class FecSegmentsTest {
+
+    private static final int MESSAGE_ID = 5;
+
+    private static byte[] frame(int size) {
+        byte[] frame = new byte[size];
+        new Random(size).nextBytes(frame);
+        return frame;
+    }
+
+    private static String[] bodies(List<String> segments, int keptMask) {
+        String[] bodies = new String[segments.size()];
+        for (int i = 0; i < bodies.length; i++) {
+            if ((keptMask & (1 << i)) != 0) {
+                bodies[i] = SmsSegment.parse(segments.get(i)).getBody();
+            }
+        }
+        return bodies;
+    }
+
+    @Test
+    public void anyKOfNSegmentsRebuildTheFrame() {
+        for (int size : new int[]{1, 150, 900}) {
+            for (int parity : new int[]{1, 3}) {
+                byte[] frame = frame(size);
+                List<String> segments = FecSegments.encode(frame, TextCodecs.GSM, MESSAGE_ID, parity);
+                int n = segments.size();
+                int k = n - parity;
+                assertTrue("too many segments to try every subset: " + n, n <= 16);
+                int subsets = 0;
+                for (int kept = 0; kept < 1 << n; kept++) {
+                    if (Integer.bitCount(kept) != k) {
+                        continue;
+                    }
+                    subsets++;
+                    assertArrayEquals("size " + size + ", kept " + Integer.toBinaryString(kept),
+                            frame, FecSegments.decode(bodies(segments, kept)));
+                }
+                assertTrue(subsets > 1);
+            }
+        }
+    }
+
+    @Test
+    public void allSegmentsDecodeWithoutRepair() {
+        byte[] frame = frame(900);
+        List<String> segments = FecSegments.encode(frame, TextCodecs.BASE64, MESSAGE_ID, 2);
+        assertArrayEquals(frame, FecSegments.decode(bodies(segments, (1 << segments.size()) - 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void fewerThanKSegmentsAreRejected() {
+        List<String> segments = FecSegments.encode(frame(900), TextCodecs.GSM, MESSAGE_ID, 2);
+        // Keeps all but the first three: one more than parity can repair
+        FecSegments.decode(bodies(segments, ((1 << segments.size()) - 1) & ~0b111));
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.smsto;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Bytes survive the GSM text coding at every tail length, and the text stays
+ * within basic GSM characters that do not frame payloads or segments.
+ */
+public class GsmBaseNCodecTest {
+
+    private static final TextCodec CODEC = new GsmBaseNCodec();
+
+    private static String encode(byte[] data) throws IOException {
+        StringWriter text = new StringWriter();
+        try (OutputStream out = CODEC.encoder(text)) {
+            out.write(data);
+        }
+        return text.toString();
+    }
+
+    private static void assertRoundTrip(byte[] data) throws IOException {
+        String text = encode(data);
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            assertTrue("char at " + i, GsmAlphabet.BASIC.indexOf(c) >= 0);
+            assertTrue("char at " + i, "\u001B\n\r #*".indexOf(c) < 0);
+        }
+        assertArrayEquals(data, CODEC.decode(text));
+    }
+
+    @Test
+    public void roundTripsEveryShortLength() throws IOException {
+        Random random = new Random(1);
+        for (int length = 0; length <= 64; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+            assertRoundTrip(data);
+        }
+    }
+
+    @Test
+    public void roundTripsExtremeBytes() throws IOException {
+        for (int value : new int[]{0x00, 0xFF, 0x55, 0xAA}) {
+            for (int length : new int[]{1, 2, 13, 100}) {
+                byte[] data = new byte[length];
+                Arrays.fill(data, (byte) value);
+                assertRoundTrip(data);
+            }
+        }
+    }
+
+    @Test
+    public void roundTripsLargeInput() throws IOException {
+        byte[] data = new byte[20000];
+        new Random(2).nextBytes(data);
+        assertRoundTrip(data);
+    }
+
+    @Test
+    public void decodesPrefixOfWholePairs() throws IOException {
+        byte[] data = new byte[300];
+        new Random(3).nextBytes(data);
+        String text = encode(data);
+        for (int cut = 0; cut < text.length(); cut += 7) {
+            byte[] prefix = CODEC.decodePrefix(text.substring(0, cut));
+            assertArrayEquals(Arrays.copyOf(data, prefix.length), prefix);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsCharactersOutsideTheAlphabet() {
+        CODEC.decode("AB*C");
+    }
+}
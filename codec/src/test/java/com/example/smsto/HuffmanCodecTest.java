@@ -0,0 +1,75 @@
+package com.example.smsto;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class HuffmanCodecTest {
+
+    private static byte[] skewed(int size, long seed) {
+        Random random = new Random(seed);
+        byte[] data = new byte[size];
+        for (int i = 0; i < size; i++) {
+            // Roughly geometric so code lengths vary
+            data[i] = (byte) Integer.numberOfTrailingZeros(random.nextInt() | 0x100);
+        }
+        return data;
+    }
+
+    @Test
+    public void packetMatchesHuffmanEncoder() {
+        byte[] data = skewed(5000, 1);
+        byte[] expected = new HuffmanEncoder().encodeBytes(data);
+        HuffmanCodec codec = HuffmanCodec.train(data, 0, data.length);
+        assertArrayEquals(expected, codec.encodePacket(data, 0, data.length));
+        assertArrayEquals(expected, codec.encode(data, 0, data.length).toPacket());
+        assertArrayEquals(data, new HuffmanDecoder().decodeBytes(expected));
+    }
+
+    @Test
+    public void decodesBitsWithoutHeader() {
+        byte[] data = skewed(777, 2);
+        HuffmanCodec codec = HuffmanCodec.train(data, 0, data.length);
+        HuffmanCodec.Encoded encoded = codec.encode(data, 0, data.length);
+        assertArrayEquals(data, codec.decode(encoded.getBytes(), 0, encoded.getBitCount()));
+        assertArrayEquals(codec.getLengths(), HuffmanCodec.fromPacket(encoded.toPacket(), 0, encoded.toPacket().length).getLengths());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBytesOutsideTable() {
+        byte[] data = {1, 2, 3};
+        HuffmanCodec.train(data, 0, data.length).encodePacket(new byte[]{4}, 0, 1);
+    }
+
+    @Test
+    public void sharedInstanceIsThreadSafe() throws Exception {
+        byte[] corpus = skewed(20000, 3);
+        HuffmanCodec codec = HuffmanCodec.train(corpus, 0, corpus.length);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                int offset = i * 37;
+                int length = 1 + i * 53;
+                results.add(executor.submit(() -> {
+                    byte[] packet = codec.encodePacket(corpus, offset, length);
+                    return Arrays.equals(Arrays.copyOfRange(corpus, offset, offset + length),
+                            codec.decodePacket(packet, 0, packet.length));
+                }));
+            }
+            for (Future<Boolean> result : results) {
+                assertTrue(result.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.smsto;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * The table decoder reads the legacy code map format, through the overflow
+ * subtables and through the bit-by-bit fallback for codes it cannot index.
+ */
+public class HuffmanDecoderTest {
+
+    private static final String BASE64 = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+
+    // Fibonacci counts give a fully skewed tree, so the longest code is symbols - 1 bits
+    private static String skewed(int symbols) {
+        List<Character> chars = new ArrayList<>();
+        int previous = 1;
+        int count = 1;
+        for (int s = 0; s < symbols; s++) {
+            for (int i = 0; i < count; i++) {
+                chars.add(BASE64.charAt(s));
+            }
+            int next = previous + count;
+            previous = count;
+            count = next;
+        }
+        Collections.shuffle(chars, new Random(symbols));
+        StringBuilder sb = new StringBuilder(chars.size());
+        for (char c : chars) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    private static String uniform(int length) {
+        Random random = new Random(length);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append(BASE64.charAt(random.nextInt(BASE64.length())));
+        }
+        return sb.toString();
+    }
+
+    private static int longestCode(String map) {
+        int longest = 0;
+        for (String pair : map.substring(map.indexOf('|') + 1).split(";")) {
+            longest = Math.max(longest, pair.length() - pair.indexOf(':') - 1);
+        }
+        return longest;
+    }
+
+    private static void assertRoundTrip(String input, int minCode, int maxCode) {
+        HuffmanEncoder encoder = new HuffmanEncoder();
+        byte[] encoded = encoder.encode(input);
+        String map = encoder.serializeCodeMap();
+        int longest = longestCode(map);
+        assertTrue("longest code " + longest, longest >= minCode && longest <= maxCode);
+        assertEquals(input, new HuffmanDecoder().decode(map, encoded));
+    }
+
+    @Test
+    public void decodesCodesWithinThePrimaryTable() {
+        assertRoundTrip(uniform(5000), 1, 9);
+    }
+
+    @Test
+    public void decodesCodesThroughSubtables() {
+        assertRoundTrip(skewed(16), 10, HuffmanTable.MAX_CODE_LENGTH);
+    }
+
+    @Test
+    public void decodesCodesTooLongForTheTable() {
+        assertRoundTrip(skewed(24), HuffmanTable.MAX_CODE_LENGTH + 1, 64);
+    }
+
+    @Test
+    public void decodesSingleSymbolInput() {
+        assertRoundTrip("AAAA", 1, 1);
+    }
+
+    @Test
+    public void rejectsTruncatedCodeOnBothPaths() {
+        for (int symbols : new int[]{16, 24}) {
+            // Ends on the rarest symbol, so dropping the last bit leaves part of a long code
+            HuffmanEncoder encoder = new HuffmanEncoder();
+            byte[] encoded = encoder.encode(skewed(symbols) + BASE64.charAt(0));
+            String map = encoder.serializeCodeMap();
+            int validBits = Integer.parseInt(map.substring(0, map.indexOf('|')));
+            String truncated = (validBits - 1) + map.substring(map.indexOf('|'));
+            try {
+                new HuffmanDecoder().decode(truncated, encoded);
+                fail("decoded a truncated code with " + symbols + " symbols");
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage(), e.getMessage().startsWith("Incomplete code in encoded data"));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsBitCountBeyondData() {
+        HuffmanEncoder encoder = new HuffmanEncoder();
+        byte[] encoded = encoder.encode(uniform(100));
+        String map = encoder.serializeCodeMap();
+        new HuffmanDecoder().decode((encoded.length * 8 + 1) + map.substring(map.indexOf('|')), encoded);
+    }
+}
@@ -0,0 +1,200 @@
+package com.example.smsto;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Every registered payload codec round trips the inputs that stress it, and
+ * the stream codecs turn damaged input into an IOException.
+ */
+public class PayloadCodecsTest {
+
+    private static final int[] IDS = {0x01, 0x02, 0x11, 0x12, 0x13, 0x14, 0x15, 0x16, 0x17, 0x18, 0x19, 0x20, 0x30, 0x31, 0x40};
+
+    private static List<PayloadCodec> streamCodecs() {
+        List<PayloadCodec> codecs = new ArrayList<>();
+        for (int id : IDS) {
+            if (id != PayloadCodecs.HUFFMAN.id() && id != PayloadCodecs.HUFFMAN_STATIC.id()) {
+                codecs.add(PayloadCodecs.forId(id));
+            }
+        }
+        return codecs;
+    }
+
+    private static byte[] random(int size, long seed) {
+        byte[] data = new byte[size];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] encode(PayloadCodec codec, byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream encoder = codec.encoder(out)) {
+            encoder.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static void assertRoundTrip(String input, byte[] data) throws IOException {
+        for (int id : IDS) {
+            PayloadCodec codec = PayloadCodecs.forId(id);
+            assertEquals(id, codec.id());
+            byte[] encoded = encode(codec, data);
+            assertArrayEquals(codec.name() + ", " + input, data, codec.decode(encoded, 0, encoded.length));
+        }
+    }
+
+    @Test
+    public void roundTripsEmptyInput() throws IOException {
+        for (int id : IDS) {
+            PayloadCodec codec = PayloadCodecs.forId(id);
+            if (codec == PayloadCodecs.HUFFMAN) {
+                // Nothing to fit a table to
+                try {
+                    encode(codec, new byte[0]);
+                    fail("encoded empty input");
+                } catch (IOException expected) {
+                }
+                continue;
+            }
+            byte[] encoded = encode(codec, new byte[0]);
+            assertArrayEquals(codec.name(), new byte[0], codec.decode(encoded, 0, encoded.length));
+        }
+    }
+
+    @Test
+    public void roundTripsOneByte() throws IOException {
+        assertRoundTrip("one byte", new byte[]{42});
+    }
+
+    @Test
+    public void roundTripsRepetitiveData() throws IOException {
+        byte[] data = new byte[50000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) "abcabcabd".charAt(i % 9);
+        }
+        assertRoundTrip("repetitive", data);
+    }
+
+    @Test
+    public void roundTripsRandomData() throws IOException {
+        assertRoundTrip("random", random(20000, 1));
+    }
+
+    @Test
+    public void roundTripsMatchesLongerThanTheWindow() throws IOException {
+        // A zero run far longer than any window, then a block repeated from beyond it
+        byte[] block = random(1000, 2);
+        byte[] data = new byte[200000 + 70000 + block.length * 2];
+        System.arraycopy(block, 0, data, 0, block.length);
+        byte[] filler = random(70000, 3);
+        System.arraycopy(filler, 0, data, 200000, filler.length);
+        System.arraycopy(block, 0, data, data.length - block.length, block.length);
+        assertRoundTrip("long matches", data);
+    }
+
+    @Test
+    public void offsetAndLengthSelectThePayload() throws IOException {
+        byte[] data = random(3000, 4);
+        for (int id : IDS) {
+            PayloadCodec codec = PayloadCodecs.forId(id);
+            byte[] encoded = encode(codec, data);
+            byte[] framed = new byte[encoded.length + 7];
+            System.arraycopy(encoded, 0, framed, 5, encoded.length);
+            assertArrayEquals(codec.name(), data, codec.decode(framed, 5, encoded.length));
+        }
+    }
+
+    @Test
+    public void rejectsTruncatedInput() throws IOException {
+        byte[] data = random(5000, 5);
+        for (PayloadCodec codec : streamCodecs()) {
+            byte[] encoded = encode(codec, data);
+            for (int length : new int[]{0, 1, encoded.length / 2, encoded.length - 1}) {
+                try {
+                    codec.decode(encoded, 0, length);
+                    fail(codec.name() + " decoded " + length + " of " + encoded.length + " bytes");
+                } catch (IOException expected) {
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rejectsCorruptHeaders() throws IOException {
+        byte[] data = random(5000, 6);
+        for (PayloadCodec codec : streamCodecs()) {
+            byte[] encoded = encode(codec, data);
+            if (codec == PayloadCodecs.DEFLATE_JPEG) {
+                // Unknown dictionary, then a reserved deflate block type after a known one
+                encoded[0] = (byte) 0xFF;
+                assertRejected(codec, encoded);
+                encoded = encode(codec, data);
+                encoded[1] = (byte) 0xFF;
+            } else if (codec == PayloadCodecs.LZ_HUFFMAN) {
+                // Literal packet length far past the end
+                encoded[0] = (byte) 0xFF;
+                encoded[1] = (byte) 0xFF;
+                encoded[2] = (byte) 0x7F;
+            } else if (codec == PayloadCodecs.GZIP) {
+                encoded[0] = 0;
+            } else {
+                encoded[0] = (byte) 0xFF;
+            }
+            assertRejected(codec, encoded);
+        }
+    }
+
+    @Test
+    public void rejectsPayloadsThatDecodePastTheLimit() throws IOException {
+        byte[] bomb = new byte[PayloadCodecs.MAX_DECODED_SIZE + 1];
+        byte[] limit = Arrays.copyOf(bomb, PayloadCodecs.MAX_DECODED_SIZE);
+        for (PayloadCodec codec : streamCodecs()) {
+            byte[] encoded = encode(codec, limit);
+            assertEquals(codec.name(), limit.length, codec.decode(encoded, 0, encoded.length).length);
+            encoded = encode(codec, bomb);
+            assertTrue(codec.name() + " needs " + encoded.length + " bytes", encoded.length * 100L < bomb.length);
+            try {
+                codec.decode(encoded, 0, encoded.length);
+                fail(codec.name() + " decoded past the limit");
+            } catch (IOException expected) {
+            }
+        }
+    }
+
+    @Test
+    public void damagedInputOnlyEverThrowsIOException() throws IOException {
+        byte[] data = random(4000, 7);
+        Arrays.fill(data, 0, 2000, (byte) 'x');
+        Random random = new Random(8);
+        for (PayloadCodec codec : streamCodecs()) {
+            byte[] encoded = encode(codec, data);
+            for (int i = 0; i < 200; i++) {
+                byte[] damaged = encoded.clone();
+                damaged[random.nextInt(damaged.length)] ^= (byte) (1 + random.nextInt(255));
+                try {
+                    codec.decode(damaged, 0, damaged.length);
+                } catch (IOException expected) {
+                    // Raw deflate has no checksum, so some damage decodes to other bytes
+                }
+            }
+        }
+    }
+
+    private static void assertRejected(PayloadCodec codec, byte[] encoded) {
+        try {
+            codec.decode(encoded, 0, encoded.length);
+            fail(codec.name() + " decoded a corrupt header");
+        } catch (IOException expected) {
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package com.example.smsto;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Stage metrics of the recorded encode and decode paths, and their CSV export.
+ */
+public class PipelineMetricsTest {
+
+    private static final int MESSAGE_ID = 3;
+
+    private final List<PipelineMetrics.Run> runs = new ArrayList<>();
+
+    @After
+    public void uninstall() {
+        PipelineMetrics.setListener(null);
+        PipelineMetrics.setAllocationCounter(null);
+    }
+
+    private static byte[] image(int size) {
+        byte[] image = new byte[size];
+        new Random(size).nextBytes(image);
+        for (int i = 0; i < size / 2; i++) {
+            image[i] = (byte) (i % 13);
+        }
+        return image;
+    }
+
+    // Streams image in, as the app does from Bitmap.compress
+    private static List<String> encode(SmsImageCodec codec, byte[] image, PipelineMetrics.Recorder recorder) throws IOException {
+        SmsImageCodec.Encoder encoder = codec.newEncoder(PayloadFormat.IMAGE_CODEC_JPEG, MESSAGE_ID, recorder);
+        try (OutputStream out = encoder) {
+            for (int i = 0; i < image.length; i += 1000) {
+                out.write(image, i, Math.min(1000, image.length - i));
+            }
+        }
+        return encoder.getSegments();
+    }
+
+    private static List<PipelineMetrics.Stage> stages(PipelineMetrics.Run run) {
+        List<PipelineMetrics.Stage> stages = new ArrayList<>();
+        for (PipelineMetrics.StageMetric metric : run.getStages()) {
+            stages.add(metric.getStage());
+        }
+        return stages;
+    }
+
+    @Test
+    public void recordsEveryEncodeAndDecodeStage() throws IOException {
+        PipelineMetrics.setListener(runs::add);
+        SmsImageCodec codec = SmsImageCodec.builder().build();
+        byte[] image = image(3000);
+
+        PipelineMetrics.Recorder encode = PipelineMetrics.start("encode");
+        List<String> segments = encode(codec, image, encode);
+        encode.finish();
+        assertEquals(codec.encode(image, PayloadFormat.IMAGE_CODEC_JPEG, MESSAGE_ID), segments);
+
+        SegmentReassembler reassembler = new SegmentReassembler();
+        reassembler.accept(String.join("", segments));
+        PipelineMetrics.Recorder decode = PipelineMetrics.start("decode");
+        byte[] decoded = codec.decodeSegments(reassembler.getKind(), reassembler.getBodies(), decode).getImage();
+        decode.finish();
+        assertArrayEquals(image, decoded);
+
+        assertEquals(2, runs.size());
+        assertEquals("encode", runs.get(0).getName());
+        assertEquals(Arrays.asList(PipelineMetrics.Stage.IMAGE_COMPRESS, PipelineMetrics.Stage.PAYLOAD_COMPRESS,
+                PipelineMetrics.Stage.TEXT_ENCODE, PipelineMetrics.Stage.SPLIT), stages(runs.get(0)));
+        List<PipelineMetrics.StageMetric> metrics = runs.get(0).getStages();
+        long segmentChars = String.join("", segments).length();
+        assertEquals(image.length, metrics.get(0).getOutputBytes());
+        assertEquals(segmentChars - segments.size() * SmsSegment.HEADER_LENGTH, metrics.get(2).getOutputBytes());
+        assertEquals(segmentChars, metrics.get(3).getOutputBytes());
+        for (PipelineMetrics.StageMetric metric : metrics) {
+            assertTrue(metric.getWallNanos() >= 0);
+        }
+        assertEquals(Arrays.asList(PipelineMetrics.Stage.TEXT_DECODE, PipelineMetrics.Stage.PAYLOAD_DECOMPRESS),
+                stages(runs.get(1)));
+        assertEquals(image.length, runs.get(1).getStages().get(1).getOutputBytes());
+        assertEquals(PipelineMetrics.UNKNOWN, runs.get(1).getStages().get(0).getAllocatedBytes());
+    }
+
+    @Test
+    public void recordsFecStages() throws IOException {
+        PipelineMetrics.setListener(runs::add);
+        SmsImageCodec codec = SmsImageCodec.builder().paritySegments(2).build();
+        byte[] image = image(3000);
+
+        PipelineMetrics.Recorder encode = PipelineMetrics.start("encode");
+        List<String> segments = encode(codec, image, encode);
+        encode.finish();
+        assertEquals(codec.encode(image, PayloadFormat.IMAGE_CODEC_JPEG, MESSAGE_ID), segments);
+        SegmentReassembler reassembler = new SegmentReassembler();
+        reassembler.accept(String.join("", segments));
+        PipelineMetrics.Recorder decode = PipelineMetrics.start("decode");
+        codec.decodeSegments(reassembler.getKind(), reassembler.getBodies(), decode);
+        decode.finish();
+
+        assertEquals(Arrays.asList(PipelineMetrics.Stage.IMAGE_COMPRESS, PipelineMetrics.Stage.PAYLOAD_COMPRESS,
+                PipelineMetrics.Stage.FEC_ENCODE), stages(runs.get(0)));
+        assertEquals(Arrays.asList(PipelineMetrics.Stage.FEC_DECODE, PipelineMetrics.Stage.PAYLOAD_DECOMPRESS), stages(runs.get(1)));
+    }
+
+    @Test
+    public void measuresNothingWithoutListener() throws IOException {
+        PipelineMetrics.Recorder recorder = PipelineMetrics.start("encode");
+        assertFalse(recorder.isEnabled());
+        encode(SmsImageCodec.builder().build(), image(500), recorder);
+        recorder.finish();
+        assertTrue(runs.isEmpty());
+    }
+
+    @Test
+    public void recordsSegmentingOfABuiltFrame() throws IOException {
+        PipelineMetrics.setListener(runs::add);
+        long[] allocated = {0};
+        PipelineMetrics.setAllocationCounter(() -> allocated[0] += 10);
+        SmsImageCodec codec = SmsImageCodec.builder().build();
+        byte[] frame = image(2000);
+
+        PipelineMetrics.Recorder recorder = PipelineMetrics.start("encode");
+        List<String> segments = codec.segmentFrame(frame, frame.length, MESSAGE_ID, recorder);
+        recorder.finish();
+
+        assertEquals(codec.segmentFrame(frame, frame.length, MESSAGE_ID), segments);
+        assertEquals(Arrays.asList(PipelineMetrics.Stage.TEXT_ENCODE, PipelineMetrics.Stage.SPLIT), stages(runs.get(0)));
+        // Every byte came from reading the counter
+        assertEquals(0, runs.get(0).getStages().get(0).getAllocatedBytes());
+    }
+
+    @Test
+    public void subtractsWhatReadingTheCounterAllocates() {
+        PipelineMetrics.setListener(runs::add);
+        long[] allocated = {0};
+        PipelineMetrics.setAllocationCounter(() -> allocated[0] += 48);
+        PipelineMetrics.Recorder recorder = PipelineMetrics.start("encode");
+        recorder.record(PipelineMetrics.Stage.RESIZE, 0);
+        allocated[0] += 500;
+        recorder.record(PipelineMetrics.Stage.IMAGE_COMPRESS, 0);
+        recorder.finish();
+
+        assertEquals(0, runs.get(0).getStages().get(0).getAllocatedBytes());
+        assertEquals(500, runs.get(0).getStages().get(1).getAllocatedBytes());
+    }
+
+    @Test
+    public void writesOneCsvRowPerStage() throws IOException {
+        PipelineMetrics.setListener(runs::add);
+        long[] allocated = {0};
+        PipelineMetrics.setAllocationCounter(() -> allocated[0]);
+        PipelineMetrics.Recorder recorder = PipelineMetrics.start("encode");
+        recorder.record(PipelineMetrics.Stage.IMAGE_COMPRESS, 1200);
+        allocated[0] += 100;
+        recorder.record(PipelineMetrics.Stage.PAYLOAD_COMPRESS, 1100);
+        recorder.finish();
+
+        StringWriter csv = new StringWriter();
+        PipelineMetrics.writeCsv(csv, runs);
+        String[] lines = csv.toString().split("\n");
+        assertEquals(3, lines.length);
+        assertEquals(PipelineMetrics.CSV_HEADER, lines[0]);
+        String[] row = lines[2].split(",", -1);
+        assertEquals(7, row.length);
+        assertEquals("encode", row[2]);
+        assertEquals("payload_compress", row[3]);
+        assertEquals("100", row[5]);
+        assertEquals("1100", row[6]);
+    }
+}
@@ -0,0 +1,107 @@
+package com.example.smsto;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Segments reassemble whatever order and however many pastes they arrive in.
+ */
+public class SegmentReassemblerTest {
+
+    private static final int MESSAGE_ID = 9;
+
+    private static String payload(int length) {
+        Random random = new Random(length);
+        StringBuilder sb = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            sb.append((char) ('A' + random.nextInt(26)));
+        }
+        return sb.toString();
+    }
+
+    private static List<String> segments(String payload, int messageId) {
+        SmsSegmentSink sink = new SmsSegmentSink(messageId, null);
+        sink.write(payload.toCharArray(), 0, payload.length());
+        sink.close();
+        return new ArrayList<>(sink.getSegments());
+    }
+
+    @Test
+    public void assemblesShuffledSegments() {
+        String payload = payload(2000);
+        List<String> segments = segments(payload, MESSAGE_ID);
+        assertTrue(segments.size() > 2);
+        Collections.shuffle(segments, new Random(1));
+
+        SegmentReassembler reassembler = new SegmentReassembler();
+        for (int i = 0; i < segments.size(); i++) {
+            assertFalse(reassembler.isComplete());
+            assertEquals(1, reassembler.accept(segments.get(i)));
+            assertEquals(i + 1, reassembler.getReceived());
+        }
+        assertTrue(reassembler.isComplete());
+        assertTrue(reassembler.getMissing().isEmpty());
+        assertEquals(payload, reassembler.assemble());
+    }
+
+    @Test
+    public void joinedSegmentsLineUpWithCarrierParts() {
+        List<String> segments = segments(payload(2000), MESSAGE_ID);
+        String joined = String.join("", segments);
+        assertEquals(segments, SmsSegmenter.plan(joined).split(joined));
+    }
+
+    @Test
+    public void reportsMissingSegments() {
+        List<String> segments = segments(payload(2000), MESSAGE_ID);
+        SegmentReassembler reassembler = new SegmentReassembler();
+        reassembler.accept(segments.get(2) + segments.get(0));
+        List<Integer> missing = reassembler.getMissing();
+        assertEquals(segments.size() - 2, missing.size());
+        assertFalse(missing.contains(0));
+        assertTrue(missing.contains(1));
+        assertFalse(missing.contains(2));
+    }
+
+    @Test
+    public void ignoresDuplicatesAndCorruptSegments() {
+        List<String> segments = segments(payload(2000), MESSAGE_ID);
+        SegmentReassembler reassembler = new SegmentReassembler();
+        String last = segments.get(segments.size() - 1);
+        char flipped = last.charAt(SmsSegment.HEADER_LENGTH) == 'x' ? 'y' : 'x';
+        String corrupt = last.substring(0, SmsSegment.HEADER_LENGTH) + flipped + last.substring(SmsSegment.HEADER_LENGTH + 1);
+        assertEquals(1, reassembler.accept(last));
+        assertEquals(0, reassembler.accept(last + corrupt));
+        assertEquals(1, reassembler.getRejected());
+        assertEquals(segments.size() - 1, reassembler.getMissing().size());
+    }
+
+    @Test
+    public void newMessageStartsOver() {
+        List<String> first = segments(payload(2000), MESSAGE_ID);
+        String payload = payload(1500);
+        List<String> second = segments(payload, MESSAGE_ID + 1);
+
+        SegmentReassembler reassembler = new SegmentReassembler();
+        reassembler.accept(first.get(0));
+        Collections.reverse(second);
+        reassembler.accept(String.join("", second));
+        assertTrue(reassembler.isComplete());
+        assertEquals(second.size(), reassembler.getTotal());
+        assertEquals(payload, reassembler.assemble());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void assembleRequiresEverySegment() {
+        List<String> segments = segments(payload(2000), MESSAGE_ID);
+        SegmentReassembler reassembler = new SegmentReassembler();
+        reassembler.accept(String.join("", segments.subList(1, segments.size())));
+        reassembler.assemble();
+    }
+}
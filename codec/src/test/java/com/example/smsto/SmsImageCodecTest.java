@@ -0,0 +1,126 @@
+package com.example.smsto;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Round trips through the public codec API, the way a JVM gateway would use it
+ * without any Android classes.
+ */
+public class SmsImageCodecTest {
+
+    private static final int MESSAGE_ID = 7;
+
+    private static byte[] image(int size) {
+        byte[] image = new byte[size];
+        new Random(size).nextBytes(image);
+        // Some repetition so the payload codecs have something to find
+        for (int i = 0; i < size / 2; i++) {
+            image[i] = (byte) (i % 17);
+        }
+        return image;
+    }
+
+    private static String join(List<String> segments) {
+        return String.join("", segments);
+    }
+
+    private static byte[] decode(SmsImageCodec codec, List<String> segments) throws IOException {
+        SegmentReassembler reassembler = new SegmentReassembler();
+        reassembler.accept(join(segments));
+        assertTrue(reassembler.isComplete());
+        PayloadFormat.Decoded decoded = codec.decodeSegments(reassembler.getKind(), reassembler.getBodies());
+        assertEquals(PayloadFormat.IMAGE_CODEC_JPEG, decoded.getImageCodec());
+        return decoded.getImage();
+    }
+
+    @Test
+    public void roundTripsWithoutParity() throws IOException {
+        SmsImageCodec codec = SmsImageCodec.builder().build();
+        byte[] image = image(3000);
+        List<String> segments = codec.encode(image, PayloadFormat.IMAGE_CODEC_JPEG, MESSAGE_ID);
+        assertArrayEquals(image, decode(codec, segments));
+    }
+
+    @Test
+    public void roundTripsWithParityAndMissingSegments() throws IOException {
+        SmsImageCodec codec = SmsImageCodec.builder().paritySegments(2).build();
+        byte[] image = image(3000);
+        List<String> segments = codec.encode(image, PayloadFormat.IMAGE_CODEC_JPEG, MESSAGE_ID);
+        SegmentReassembler reassembler = new SegmentReassembler();
+        reassembler.accept(join(segments.subList(2, segments.size())));
+        assertTrue(reassembler.isComplete());
+        assertArrayEquals(image, codec.decodeSegments(reassembler.getKind(), reassembler.getBodies()).getImage());
+    }
+
+    @Test
+    public void segmentCountMatchesSegmentFrame() throws IOException {
+        for (int parity : new int[]{0, 2}) {
+            SmsImageCodec codec = SmsImageCodec.builder().paritySegments(parity).build();
+            ByteArrayOutputStream frame = new ByteArrayOutputStream();
+            try (OutputStream out = codec.openFrameEncoder(frame, PayloadFormat.IMAGE_CODEC_JPEG)) {
+                out.write(image(5000));
+            }
+            byte[] bytes = frame.toByteArray();
+            assertEquals(codec.segmentFrame(bytes, bytes.length, MESSAGE_ID).size(), codec.segmentCount(bytes, bytes.length));
+        }
+    }
+
+    @Test
+    public void decodesLegacyPayload() throws IOException {
+        byte[] image = image(500);
+        ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+        try (GZIPOutputStream out = new GZIPOutputStream(gzipped)) {
+            out.write(Base64.getEncoder().encodeToString(image).getBytes(StandardCharsets.UTF_8));
+        }
+        String legacy = Base64.getEncoder().encodeToString(gzipped.toByteArray());
+        assertArrayEquals(image, SmsImageCodec.builder().build().decode(legacy).getImage());
+    }
+
+    @Test
+    public void previewsGrowAsSegmentsArrive() throws IOException {
+        byte[] image = image(3000);
+        for (int parity : new int[]{0, 2}) {
+            SmsImageCodec codec = SmsImageCodec.builder().paritySegments(parity).build();
+            List<String> segments = codec.encode(image, PayloadFormat.IMAGE_CODEC_JPEG, MESSAGE_ID);
+            SegmentReassembler reassembler = new SegmentReassembler();
+            int previous = 0;
+            for (String segment : segments) {
+                reassembler.accept(segment);
+                PayloadFormat.Decoded preview = codec.decodePreview(reassembler.getKind(), reassembler.getBodies());
+                int length = preview == null ? 0 : preview.getImage().length;
+                assertTrue(length >= previous);
+                if (preview != null) {
+                    assertArrayEquals(Arrays.copyOf(image, length), preview.getImage());
+                }
+                previous = length;
+            }
+            assertEquals(image.length, previous);
+        }
+    }
+
+    @Test
+    public void previewSkipsSegmentsAfterAGap() throws IOException {
+        SmsImageCodec codec = SmsImageCodec.builder().build();
+        List<String> segments = codec.encode(image(3000), PayloadFormat.IMAGE_CODEC_JPEG, MESSAGE_ID);
+        SegmentReassembler reassembler = new SegmentReassembler();
+        reassembler.accept(join(segments.subList(1, segments.size())));
+        assertNull(codec.decodePreview(reassembler.getKind(), reassembler.getBodies()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeParity() {
+        SmsImageCodec.builder().paritySegments(-1);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.smsto;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Segment plans match what a carrier bills: septets for GSM-7, UTF-16 code
+ * units for UCS-2, with room left for the concatenation UDH.
+ */
+public class SmsSegmenterTest {
+
+    private static String repeat(char c, int count) {
+        StringBuilder sb = new StringBuilder(count);
+        for (int i = 0; i < count; i++) {
+            sb.append(c);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void singleGsmMessageHoldsFullLength() {
+        SmsSegmenter.Plan plan = SmsSegmenter.plan(repeat('a', SmsSegmenter.GSM_SINGLE_SEPTETS));
+        assertEquals(SmsSegmenter.Encoding.GSM_7, plan.getEncoding());
+        assertEquals(1, plan.getSegmentCount());
+    }
+
+    @Test
+    public void multipartGsmLeavesRoomForHeader() {
+        String text = repeat('a', SmsSegmenter.GSM_SINGLE_SEPTETS + 1);
+        SmsSegmenter.Plan plan = SmsSegmenter.plan(text);
+        assertEquals(2, plan.getSegmentCount());
+        assertEquals(SmsSegmenter.GSM_MULTIPART_SEPTETS, plan.end(0));
+        assertEquals(text, String.join("", plan.split(text)));
+    }
+
+    @Test
+    public void escapeCharactersCostTwoSeptets() {
+        // 76 escaped characters fill 152 septets; the 77th does not fit beside them
+        String text = repeat('{', 77) + repeat('a', 100);
+        SmsSegmenter.Plan plan = SmsSegmenter.plan(text);
+        assertEquals(77 * 2 + 100, plan.getUnits());
+        assertEquals(2, plan.getSegmentCount());
+        assertEquals(76, plan.end(0));
+    }
+
+    @Test
+    public void nonGsmTextFallsBackToUcs2() {
+        String text = repeat('a', SmsSegmenter.UCS2_SINGLE_UNITS - 1) + '\u4E2D';
+        SmsSegmenter.Plan plan = SmsSegmenter.plan(text);
+        assertEquals(SmsSegmenter.Encoding.UCS_2, plan.getEncoding());
+        assertEquals(1, plan.getSegmentCount());
+
+        plan = SmsSegmenter.plan(text + 'a');
+        assertEquals(2, plan.getSegmentCount());
+        assertEquals(SmsSegmenter.UCS2_MULTIPART_UNITS, plan.end(0));
+    }
+
+    @Test
+    public void ucs2NeverSplitsSurrogatePairs() {
+        String text = repeat('a', SmsSegmenter.UCS2_MULTIPART_UNITS - 1) + "\uD83D\uDE00" + repeat('a', 10);
+        List<String> parts = SmsSegmenter.plan(text).split(text);
+        assertEquals(2, parts.size());
+        assertEquals(SmsSegmenter.UCS2_MULTIPART_UNITS - 1, parts.get(0).length());
+        assertTrue(parts.get(1).startsWith("\uD83D\uDE00"));
+    }
+
+    @Test
+    public void emptyTextNeedsNoSegments() {
+        assertEquals(0, SmsSegmenter.plan("").getSegmentCount());
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.smsto;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class StaticHuffmanCodecTest {
+
+    private static byte[] encode(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OutputStream encoder = PayloadCodecs.HUFFMAN_STATIC.encoder(out)) {
+            encoder.write(data);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] roundTrip(byte[] data) throws IOException {
+        byte[] encoded = encode(data);
+        assertArrayEquals(data, PayloadCodecs.HUFFMAN_STATIC.decode(encoded, 0, encoded.length));
+        return encoded;
+    }
+
+    @Test
+    public void usesStaticTableForImageLikeBytes() throws IOException {
+        byte[] data = new byte[3000];
+        new Random(5).nextBytes(data);
+        byte[] encoded = roundTrip(data);
+        assertEquals(HuffmanTables.JPEG, (encoded[0] & 0xFF) >>> 3);
+        // One byte of header instead of the fitted table's code lengths
+        assertTrue(encoded.length < 1 + CanonicalHuffman.headerSize(256) + data.length);
+    }
+
+    @Test
+    public void fallsBackToFittedTableWhenSmaller() throws IOException {
+        byte[] data = new byte[3000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 7 == 0 ? 'b' : 'a');
+        }
+        byte[] encoded = roundTrip(data);
+        assertEquals(HuffmanTables.ADAPTIVE, (encoded[0] & 0xFF) >>> 3);
+    }
+
+    @Test
+    public void roundTripsEmptyAndSingleBytes() throws IOException {
+        roundTrip(new byte[0]);
+        roundTrip(new byte[]{42});
+    }
+
+    @Test
+    public void tablesAreCompleteCodes() {
+        HuffmanCodec table = HuffmanTables.get(HuffmanTables.JPEG);
+        long kraft = 0;
+        for (int symbol = 0; symbol < 256; symbol++) {
+            assertTrue(table.codeLength(symbol) > 0);
+            kraft += 1L << (CanonicalHuffman.MAX_CODE_LENGTH - table.codeLength(symbol));
+        }
+        assertEquals(1L << CanonicalHuffman.MAX_CODE_LENGTH, kraft);
+    }
+}
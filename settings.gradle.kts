@@ -21,3 +21,4 @@ dependencyResolutionManagement {
 
 rootProject.name = "SMSto"
 include(":app")
+include(":codec")